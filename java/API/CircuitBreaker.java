@@ -0,0 +1,110 @@
+package API;
+
+import java.io.IOException;
+import java.net.URI;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The CircuitBreaker tracks the health of one upstream host and stops requests to it while it
+ * is failing.
+ * <p>
+ * After {@code failureThreshold} failures in a row the breaker opens and every request fails
+ * at once with an OpenException, without touching the network. Once the cool-down has passed
+ * a single trial request is let through: if it succeeds the breaker closes again, if it fails
+ * the breaker stays open for another cool-down.
+ * <p>
+ * There is one breaker per host, shared by all api instances.
+ */
+public class CircuitBreaker {
+    private static final int DEFAULT_FAILURE_THRESHOLD = 5;
+    private static final Duration DEFAULT_COOL_DOWN = Duration.ofSeconds(30);
+    private static final Map<String, CircuitBreaker> breakers = new ConcurrentHashMap<>();
+
+    private final String host;
+    private final int failureThreshold;
+    private final long coolDownNanos;
+    private int consecutiveFailures;
+    private long openedAt;
+    private boolean open;
+    private boolean trialInFlight;
+
+    /**
+     * Thrown instead of sending a request while the breaker of its host is open.
+     */
+    public static class OpenException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        public OpenException(String host) {
+            super("Upstream " + host + " is unavailable, not sending requests for now");
+        }
+    }
+
+    public CircuitBreaker(String host, int failureThreshold, Duration coolDown) {
+        this.host = host;
+        this.failureThreshold = failureThreshold;
+        this.coolDownNanos = coolDown.toNanos();
+    }
+
+    /**
+     * Returns the breaker shared by all requests to the host of the URI.
+     */
+    public static CircuitBreaker forHost(URI uri) {
+        String host = uri.getHost() + ":" + uri.getPort();
+        return breakers.computeIfAbsent(host, key -> new CircuitBreaker(key, DEFAULT_FAILURE_THRESHOLD, DEFAULT_COOL_DOWN));
+    }
+
+    /**
+     * The answer of admit: whether a request may be sent, and whether it is the trial request.
+     */
+    public enum Admission {
+        REJECTED, ALLOWED, TRIAL
+    }
+
+    /**
+     * Decides whether a request may be sent now. While open, only one trial request is allowed
+     * after each cool-down. A trial must end with recordSuccess, recordFailure or releaseTrial.
+     */
+    public synchronized Admission admit() {
+        if (!open) {
+            return Admission.ALLOWED;
+        }
+        if (!trialInFlight && System.nanoTime() - openedAt >= coolDownNanos) {
+            trialInFlight = true;
+            return Admission.TRIAL;
+        }
+        return Admission.REJECTED;
+    }
+
+    /**
+     * Gives up the trial without an outcome, e.g. because it was cancelled, so that the next
+     * request can be the trial instead.
+     */
+    public synchronized void releaseTrial() {
+        trialInFlight = false;
+    }
+
+    public synchronized void recordSuccess() {
+        consecutiveFailures = 0;
+        open = false;
+        trialInFlight = false;
+    }
+
+    public synchronized void recordFailure() {
+        consecutiveFailures++;
+        if (trialInFlight || consecutiveFailures >= failureThreshold) {
+            open = true;
+            openedAt = System.nanoTime();
+        }
+        trialInFlight = false;
+    }
+
+    public synchronized boolean isOpen() {
+        return open;
+    }
+
+    public String getHost() {
+        return host;
+    }
+}
@@ -0,0 +1,162 @@
+package API;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpResponse;
+import java.nio.charset.Charset;
+import java.nio.charset.IllegalCharsetNameException;
+import java.nio.charset.StandardCharsets;
+import java.nio.charset.UnsupportedCharsetException;
+import java.util.Locale;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * The ContentDecoding body handlers undo the gzip or deflate Content-Encoding of a response,
+ * which java.net.http leaves to the caller. Requests advertise both with ACCEPT_ENCODING.
+ * <p>
+ * A response without a Content-Encoding, or with identity, is passed through unchanged. A body
+ * labelled gzip that does not start with the gzip magic number is passed through too, and
+ * deflate is accepted both zlib-wrapped, as the standard says, and raw, as some servers send it.
+ * <p>
+ * Streamed bodies are inflated while they are read, so the JSON parser still consumes a page
+ * as it arrives. The decoder is only set up on the first read, because reading the gzip header
+ * on the HTTP client's thread could block it.
+ */
+public final class ContentDecoding {
+    public static final String ACCEPT_ENCODING = "gzip, deflate";
+
+    private ContentDecoding() {
+    }
+
+    /**
+     * Like BodyHandlers.ofInputStream, with the body decoded while it is read.
+     */
+    public static HttpResponse.BodyHandler<InputStream> ofInputStream() {
+        return info -> HttpResponse.BodySubscribers.mapping(HttpResponse.BodySubscribers.ofInputStream(),
+                body -> new LazyDecodingInputStream(body, encoding(info.headers())));
+    }
+
+    /**
+     * Like BodyHandlers.ofString, with the body decoded before the charset of its Content-Type,
+     * UTF-8 by default, is applied.
+     */
+    public static HttpResponse.BodyHandler<String> ofString() {
+        return info -> HttpResponse.BodySubscribers.mapping(HttpResponse.BodySubscribers.ofByteArray(),
+                body -> new String(decode(body, info.headers()), charset(info.headers())));
+    }
+
+    /**
+     * Decodes a complete body according to the Content-Encoding of its headers.
+     *
+     * @throws UncheckedIOException if the body is not valid for its encoding
+     */
+    public static byte[] decode(byte[] body, HttpHeaders headers) {
+        String encoding = encoding(headers);
+        if (encoding.isEmpty() || body.length == 0) {
+            return body;
+        }
+        try (InputStream in = decoder(new ByteArrayInputStream(body), encoding)) {
+            return in.readAllBytes();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static String encoding(HttpHeaders headers) {
+        String encoding = headers.firstValue("Content-Encoding").orElse("").trim().toLowerCase(Locale.ROOT);
+        return encoding.equals("identity") ? "" : encoding;
+    }
+
+    private static Charset charset(HttpHeaders headers) {
+        String contentType = headers.firstValue("Content-Type").orElse("");
+        for (String parameter : contentType.split(";")) {
+            String[] pair = parameter.trim().split("=", 2);
+            if (pair.length == 2 && pair[0].equalsIgnoreCase("charset")) {
+                try {
+                    return Charset.forName(pair[1].replace("\"", "").trim());
+                } catch (IllegalCharsetNameException | UnsupportedCharsetException e) {
+                    break;
+                }
+            }
+        }
+        return StandardCharsets.UTF_8;
+    }
+
+    private static InputStream decoder(InputStream raw, String encoding) throws IOException {
+        switch (encoding) {
+            case "":
+                return raw;
+            case "gzip":
+            case "x-gzip": {
+                BufferedInputStream in = new BufferedInputStream(raw);
+                in.mark(2);
+                int first = in.read();
+                int second = in.read();
+                in.reset();
+                // Not gzip after all, e.g. a proxy that decoded the body but kept the header
+                return first == 0x1f && second == 0x8b ? new GZIPInputStream(in) : in;
+            }
+            case "deflate": {
+                BufferedInputStream in = new BufferedInputStream(raw);
+                in.mark(2);
+                int first = in.read();
+                int second = in.read();
+                in.reset();
+                boolean zlib = first >= 0 && second >= 0 && (first & 0x0f) == 8 && ((first << 8) | second) % 31 == 0;
+                return new InflaterInputStream(in, new Inflater(!zlib));
+            }
+            default:
+                throw new IOException("Unsupported Content-Encoding: " + encoding);
+        }
+    }
+
+    /**
+     * Sets up the decoder on the first read, on the thread consuming the body.
+     */
+    private static class LazyDecodingInputStream extends FilterInputStream {
+        private final String encoding;
+        private boolean decoding;
+
+        LazyDecodingInputStream(InputStream raw, String encoding) {
+            super(raw);
+            this.encoding = encoding;
+        }
+
+        private void startDecoding() throws IOException {
+            if (!decoding) {
+                decoding = true;
+                in = decoder(in, encoding);
+            }
+        }
+
+        @Override
+        public int read() throws IOException {
+            startDecoding();
+            return super.read();
+        }
+
+        @Override
+        public int read(byte[] buffer, int off, int len) throws IOException {
+            startDecoding();
+            return in.read(buffer, off, len);
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            startDecoding();
+            return super.skip(n);
+        }
+
+        @Override
+        public int available() throws IOException {
+            return decoding ? super.available() : 0;
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package API;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+
+/**
+ * The FetchEpoch hands out one Token per fetch of a view. Starting a new fetch cancels the token
+ * of the previous one, so only the most recent fetch is ever current.
+ * <p>
+ * A cancelled token aborts what is registered with it: the HTTP exchange in flight and the body
+ * stream being parsed. Per-row work checks the token between rows, and results are only applied
+ * to the UI while their token is still current. A resource is only held while it is in use:
+ * futures leave the token when they complete and streams when their owner unregisters them, so
+ * a long-lived token such as the one of a fleet sync does not grow with every request.
+ */
+public class FetchEpoch {
+    private Token current = Token.NONE;
+
+    /**
+     * Cancels the running fetch, if any, and returns the token for a new one.
+     */
+    public synchronized Token next() {
+        current.cancel();
+        current = new Token(this);
+        return current;
+    }
+
+    /**
+     * Cancels the running fetch without starting a new one.
+     */
+    public synchronized void cancel() {
+        current.cancel();
+    }
+
+    synchronized boolean isCurrent(Token token) {
+        return token == current;
+    }
+
+    /**
+     * The cancellation handle of one fetch.
+     */
+    public static class Token {
+        /**
+         * A token that is never cancelled, for callers that do not take part in an epoch.
+         */
+        public static final Token NONE = new Token(null);
+
+        private final FetchEpoch epoch;
+        private final List<Object> resources = new ArrayList<>();
+        private boolean cancelled;
+
+        private Token(FetchEpoch epoch) {
+            this.epoch = epoch;
+        }
+
+        /**
+         * Returns true while no newer fetch has been started and this one was not cancelled.
+         */
+        public boolean isCurrent() {
+            return !isCancelled() && (epoch == null || epoch.isCurrent(this));
+        }
+
+        public synchronized boolean isCancelled() {
+            return cancelled;
+        }
+
+        /**
+         * Throws a CancellationException if the token has been cancelled.
+         */
+        public void throwIfCancelled() {
+            if (isCancelled()) {
+                throw new CancellationException("Fetch superseded");
+            }
+        }
+
+        /**
+         * Cancels the token and aborts every registered future and stream.
+         */
+        public void cancel() {
+            List<Object> toRelease;
+            synchronized (this) {
+                if (this == NONE || cancelled) {
+                    return;
+                }
+                cancelled = true;
+                toRelease = new ArrayList<>(resources);
+                resources.clear();
+            }
+            for (Object resource : toRelease) {
+                release(resource);
+            }
+        }
+
+        /**
+         * Registers a future to cancel with the token. It is cancelled right away if the
+         * token already is. A CompletableFuture is unregistered again once it completes.
+         */
+        public <F extends Future<?>> F register(F future) {
+            attach(future);
+            if (this != NONE && future instanceof CompletableFuture) {
+                ((CompletableFuture<?>) future).whenComplete((result, error) -> detach(future));
+            }
+            return future;
+        }
+
+        /**
+         * Registers a stream to close with the token. It is closed right away if the
+         * token already is.
+         */
+        public <C extends Closeable> C register(C closeable) {
+            attach(closeable);
+            return closeable;
+        }
+
+        /**
+         * Forgets a stream that was read to the end or closed by its owner.
+         */
+        public void unregister(Closeable closeable) {
+            detach(closeable);
+        }
+
+        private synchronized void detach(Object resource) {
+            resources.remove(resource);
+        }
+
+        private void attach(Object resource) {
+            synchronized (this) {
+                if (this == NONE) {
+                    return;
+                }
+                if (!cancelled) {
+                    resources.add(resource);
+                    return;
+                }
+            }
+            release(resource);
+        }
+
+        private static void release(Object resource) {
+            if (resource instanceof Future) {
+                ((Future<?>) resource).cancel(true);
+            } else {
+                try {
+                    ((Closeable) resource).close();
+                } catch (IOException ignored) {
+                    // the fetch is abandoned, there is nobody left to report to
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package API;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The FetchProgress counts what one fetch has done so far: bytes received, rows expected and
+ * rows finished. The fetch pipeline updates it from its own threads; the UI samples it.
+ * <p>
+ * A fetch is only done when finish is called, which the owner of the fetch does once the
+ * result is ready, has failed or was cancelled.
+ */
+public class FetchProgress {
+    private final AtomicLong bytes = new AtomicLong();
+    private final AtomicInteger expectedRows = new AtomicInteger(-1);
+    private final AtomicInteger doneRows = new AtomicInteger();
+    private volatile boolean finished;
+
+    public void addBytes(long count) {
+        bytes.addAndGet(count);
+    }
+
+    /**
+     * Sets the number of rows the fetch will produce, once it is known.
+     */
+    public void expectRows(int count) {
+        expectedRows.set(count);
+    }
+
+    public void rowDone() {
+        doneRows.incrementAndGet();
+    }
+
+    /**
+     * Counts several rows as done at once, e.g. the rows of a page another fetch already loaded.
+     */
+    public void rowsDone(int count) {
+        doneRows.addAndGet(count);
+    }
+
+    public void finish() {
+        finished = true;
+    }
+
+    public long getBytes() {
+        return bytes.get();
+    }
+
+    /**
+     * Returns the number of expected rows, -1 while unknown.
+     */
+    public int getExpectedRows() {
+        return expectedRows.get();
+    }
+
+    public int getDoneRows() {
+        return doneRows.get();
+    }
+
+    public boolean isFinished() {
+        return finished;
+    }
+
+    /**
+     * Returns the finished share of the rows between 0 and 1, or -1 while the number of rows
+     * is unknown.
+     */
+    public double getFraction() {
+        int expected = expectedRows.get();
+        if (finished) {
+            return 1;
+        }
+        if (expected <= 0) {
+            return -1;
+        }
+        return Math.min(1.0, (double) doneRows.get() / expected);
+    }
+}
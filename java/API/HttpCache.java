@@ -0,0 +1,213 @@
+package API;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+
+/**
+ * The HttpCache keeps response bodies of slowly changing endpoints on disk, together with their
+ * ETag and Last-Modified validators, so they survive a restart of the application.
+ * <p>
+ * Only endpoints with a configured max-age are cached, matched by the longest path prefix. A
+ * cached body younger than its max-age is served without any request. An older one is
+ * revalidated with If-None-Match and If-Modified-Since: a 304 answer costs no body and serves the
+ * copy on disk again. Responses marked no-store are never written.
+ * <p>
+ * Every URL has two files in the cache directory, named after the SHA-256 of the URL: the body
+ * and a properties file with the validators. Both are replaced atomically, and an entry whose
+ * body does not have the recorded length is treated as missing.
+ */
+public class HttpCache {
+    private static final HttpCache shared = new HttpCache(Paths.get("http-cache"));
+
+    private final Path directory;
+    private final Map<String, Duration> maxAges = new TreeMap<>();
+
+    /**
+     * A cached response: its body and the validators to revalidate it with.
+     */
+    public record Entry(byte[] body, String etag, String lastModified, long storedAtMillis) {
+
+        boolean isFresh(Duration maxAge) {
+            return System.currentTimeMillis() - storedAtMillis < maxAge.toMillis();
+        }
+    }
+
+    /**
+     * A response as received, with the status and headers needed to update the cache. The body
+     * is stored decoded.
+     */
+    record Fetched(int statusCode, HttpHeaders headers, byte[] body) {
+
+        static HttpResponse.BodyHandler<Fetched> handler() {
+            return info -> HttpResponse.BodySubscribers.mapping(HttpResponse.BodySubscribers.ofByteArray(),
+                    body -> new Fetched(info.statusCode(), info.headers(), ContentDecoding.decode(body, info.headers())));
+        }
+    }
+
+    public HttpCache(Path directory) {
+        this.directory = directory;
+        // Drone types and drones hardly ever change, dynamics are never cached here
+        maxAges.put("/api/dronetypes/", Duration.ofHours(1));
+        maxAges.put("/api/drones/", Duration.ofMinutes(10));
+    }
+
+    public static HttpCache getInstance() {
+        return shared;
+    }
+
+    /**
+     * Caches the endpoints below the path prefix for the given max-age. A zero max-age still
+     * caches them, but revalidates on every request; null stops caching them.
+     */
+    public synchronized void setMaxAge(String pathPrefix, Duration maxAge) {
+        if (maxAge == null) {
+            maxAges.remove(pathPrefix);
+        } else {
+            maxAges.put(pathPrefix, maxAge);
+        }
+    }
+
+    /**
+     * Returns the max-age of the path, or null if it is not cached.
+     */
+    public synchronized Duration getMaxAge(String path) {
+        String match = null;
+        for (String prefix : maxAges.keySet()) {
+            if (path.startsWith(prefix) && (match == null || prefix.length() > match.length())) {
+                match = prefix;
+            }
+        }
+        return match == null ? null : maxAges.get(match);
+    }
+
+    public boolean isCached(URI uri) {
+        return getMaxAge(uri.getPath()) != null;
+    }
+
+    /**
+     * Returns true if the entry may be served without revalidating it.
+     */
+    public boolean isFresh(URI uri, Entry entry) {
+        Duration maxAge = getMaxAge(uri.getPath());
+        return maxAge != null && entry.isFresh(maxAge);
+    }
+
+    /**
+     * Reads the entry of the URL, or returns null if there is none or it is incomplete.
+     */
+    public Entry lookup(URI uri) throws IOException {
+        Path metaFile = metaFile(uri);
+        Path bodyFile = bodyFile(uri);
+        if (!Files.exists(metaFile) || !Files.exists(bodyFile)) {
+            return null;
+        }
+        Properties meta = new Properties();
+        try (InputStream in = Files.newInputStream(metaFile)) {
+            meta.load(in);
+        }
+        byte[] body = Files.readAllBytes(bodyFile);
+        if (!uri.toString().equals(meta.getProperty("url"))
+                || body.length != Long.parseLong(meta.getProperty("length", "-1"))) {
+            return null;
+        }
+        return new Entry(body, meta.getProperty("etag"), meta.getProperty("lastModified"),
+                Long.parseLong(meta.getProperty("storedAt", "0")));
+    }
+
+    /**
+     * Stores a 200 response, unless it is marked no-store.
+     *
+     * @return the stored entry, or null if nothing was stored
+     */
+    public Entry store(URI uri, HttpHeaders headers, byte[] body) throws IOException {
+        if (headers.firstValue("Cache-Control").map(value -> value.contains("no-store")).orElse(false)) {
+            return null;
+        }
+        Entry entry = new Entry(body, headers.firstValue("ETag").orElse(null),
+                headers.firstValue("Last-Modified").orElse(null), System.currentTimeMillis());
+        Files.createDirectories(directory);
+        replace(bodyFile(uri), body);
+        writeMeta(uri, entry);
+        return entry;
+    }
+
+    /**
+     * Records that a cached entry was confirmed by a 304, taking over any new validators.
+     */
+    public Entry revalidated(URI uri, Entry entry, HttpHeaders headers) throws IOException {
+        Entry refreshed = new Entry(entry.body(), headers.firstValue("ETag").orElse(entry.etag()),
+                headers.firstValue("Last-Modified").orElse(entry.lastModified()), System.currentTimeMillis());
+        writeMeta(uri, refreshed);
+        return refreshed;
+    }
+
+    /**
+     * Deletes every cached response.
+     */
+    public void clear() throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+        try (var files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    private void writeMeta(URI uri, Entry entry) throws IOException {
+        Properties meta = new Properties();
+        meta.setProperty("url", uri.toString());
+        meta.setProperty("length", String.valueOf(entry.body().length));
+        meta.setProperty("storedAt", String.valueOf(entry.storedAtMillis()));
+        if (entry.etag() != null) {
+            meta.setProperty("etag", entry.etag());
+        }
+        if (entry.lastModified() != null) {
+            meta.setProperty("lastModified", entry.lastModified());
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        meta.store(out, null);
+        replace(metaFile(uri), out.toByteArray());
+    }
+
+    private static void replace(Path file, byte[] content) throws IOException {
+        // The tmp name is per thread, two responses for the same URL may be written at once
+        Path tmp = file.resolveSibling(file.getFileName() + "." + Thread.currentThread().getId() + ".tmp");
+        Files.write(tmp, content);
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private Path bodyFile(URI uri) {
+        return directory.resolve(key(uri) + ".body");
+    }
+
+    private Path metaFile(URI uri) {
+        return directory.resolve(key(uri) + ".properties");
+    }
+
+    private static String key(URI uri) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(uri.toString().getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package API;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.json.JSONTokener;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The PageParser reads a paginated API response of the form
+ * {@code {"count": n, "next": url, "previous": url, "results": [...]}} as a stream.
+ * <p>
+ * It pulls tokens straight off the response body and hands every element of "results" to a
+ * mapper as soon as that element has arrived, so the model objects are built while the rest
+ * of the page is still on the wire. Neither the whole body as a String nor a JSONObject for
+ * the whole page is ever built; only one small JSONObject per element exists at a time.
+ */
+public class PageParser {
+
+    /**
+     * Converts one element of "results" into a model object.
+     */
+    public interface ElementMapper<T> {
+        T map(JSONObject element) throws IOException;
+    }
+
+    /**
+     * One parsed page.
+     */
+    public static class Page<T> {
+        private final int count;
+        private final String next;
+        private final List<T> results;
+
+        Page(int count, String next, List<T> results) {
+            this.count = count;
+            this.next = next;
+            this.results = Collections.unmodifiableList(results);
+        }
+
+        /**
+         * Returns the total number of items across all pages, as reported by the server.
+         */
+        public int getCount() {
+            return count;
+        }
+
+        /**
+         * Returns the URL of the next page, or null on the last page.
+         */
+        public String getNext() {
+            return next;
+        }
+
+        public List<T> getResults() {
+            return results;
+        }
+    }
+
+    /**
+     * Parses a page from the body stream and closes the stream.
+     */
+    public static <T> Page<T> parse(InputStream body, ElementMapper<T> mapper) throws IOException {
+        try (InputStreamReader reader = new InputStreamReader(body, StandardCharsets.UTF_8)) {
+            JSONTokener tokener = new JSONTokener(reader);
+            int count = -1;
+            String next = null;
+            List<T> results = new ArrayList<>();
+
+            expect(tokener, '{');
+            char c = tokener.nextClean();
+            while (c != '}') {
+                if (c != '"') {
+                    throw tokener.syntaxError("Expected a key");
+                }
+                String key = tokener.nextString('"');
+                expect(tokener, ':');
+                if (key.equals("results")) {
+                    readResults(tokener, mapper, results);
+                } else {
+                    Object value = tokener.nextValue();
+                    if (key.equals("count") && value instanceof Number) {
+                        count = ((Number) value).intValue();
+                    } else if (key.equals("next") && value instanceof String) {
+                        next = (String) value;
+                    }
+                }
+                c = tokener.nextClean();
+                if (c == ',') {
+                    c = tokener.nextClean();
+                } else if (c != '}') {
+                    throw tokener.syntaxError("Expected ',' or '}'");
+                }
+            }
+            return new Page<>(count < 0 ? results.size() : count, next, results);
+        } catch (JSONException e) {
+            throw new IOException("Malformed page response: " + e.getMessage(), e);
+        }
+    }
+
+    private static <T> void readResults(JSONTokener tokener, ElementMapper<T> mapper, List<T> results) throws IOException {
+        expect(tokener, '[');
+        char c = tokener.nextClean();
+        if (c == ']') {
+            return;
+        }
+        tokener.back();
+        while (true) {
+            Object element = tokener.nextValue();
+            if (!(element instanceof JSONObject)) {
+                throw tokener.syntaxError("Expected an object in results");
+            }
+            results.add(mapper.map((JSONObject) element));
+            c = tokener.nextClean();
+            if (c == ']') {
+                return;
+            }
+            if (c != ',') {
+                throw tokener.syntaxError("Expected ',' or ']'");
+            }
+        }
+    }
+
+    private static void expect(JSONTokener tokener, char expected) {
+        char c = tokener.nextClean();
+        if (c != expected) {
+            throw tokener.syntaxError("Expected '" + expected + "' but found '" + c + "'");
+        }
+    }
+}
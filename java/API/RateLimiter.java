@@ -0,0 +1,60 @@
+package API;
+
+import java.io.InterruptedIOException;
+
+/**
+ * The RateLimiter is a token bucket: it refills at a steady number of permits per second and
+ * holds at most {@code burst} permits, so short bursts pass at once while the long-term request
+ * rate stays bounded.
+ * <p>
+ * acquire blocks the calling thread until a permit is available; it is meant for background
+ * jobs running on their own threads, never for the JavaFX Application Thread.
+ */
+public class RateLimiter {
+    private final double permitsPerNano;
+    private final double burst;
+    private double permits;
+    private long refilledAt = System.nanoTime();
+
+    public RateLimiter(double permitsPerSecond, int burst) {
+        if (permitsPerSecond <= 0 || burst < 1) {
+            throw new IllegalArgumentException("Invalid rate " + permitsPerSecond + "/s with burst " + burst);
+        }
+        this.permitsPerNano = permitsPerSecond / 1_000_000_000.0;
+        this.burst = burst;
+        this.permits = burst;
+    }
+
+    /**
+     * Takes one permit, waiting for the bucket to refill if it is empty.
+     *
+     * @throws InterruptedIOException if the thread is interrupted while waiting
+     */
+    public void acquire() throws InterruptedIOException {
+        long waitNanos;
+        while ((waitNanos = tryAcquire()) > 0) {
+            try {
+                Thread.sleep(waitNanos / 1_000_000, (int) (waitNanos % 1_000_000));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for a request permit");
+            }
+        }
+    }
+
+    /**
+     * Takes a permit if one is available.
+     *
+     * @return 0 if a permit was taken, otherwise the nanoseconds until the next one is due
+     */
+    public synchronized long tryAcquire() {
+        long now = System.nanoTime();
+        permits = Math.min(burst, permits + (now - refilledAt) * permitsPerNano);
+        refilledAt = now;
+        if (permits >= 1) {
+            permits -= 1;
+            return 0;
+        }
+        return Math.max(1, (long) Math.ceil((1 - permits) / permitsPerNano));
+    }
+}
@@ -0,0 +1,182 @@
+package API;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The RequestGovernor keeps the requests to one class of endpoints within the budget the
+ * dronesim server tolerates: a token bucket bounds the request rate and a fixed number of slots
+ * bounds the requests in flight.
+ * <p>
+ * Requests that are not admitted right away wait in two queues. Interactive requests, the pages
+ * the user is looking at, are always admitted before background ones such as the fleet sync,
+ * live polling and prefetches. Background requests also never take the last free slot, so a
+ * bulk job cannot starve an interactive request even when the slots free up slowly.
+ * <p>
+ * Admission never blocks a thread: acquire returns a future that completes with a Permit once
+ * the request may be sent. Cancelling that future gives up its place in the queue.
+ */
+public class RequestGovernor {
+
+    /**
+     * The endpoint classes with separate budgets.
+     */
+    public enum EndpointClass {
+        DYNAMICS, DRONES, DRONETYPES;
+
+        /**
+         * Classifies a path such as "/api/71/dynamics/?limit=10" or "/api/dronetypes/".
+         */
+        public static EndpointClass of(String path) {
+            if (path.contains("/dynamics")) {
+                return DYNAMICS;
+            }
+            if (path.startsWith("/api/dronetypes")) {
+                return DRONETYPES;
+            }
+            return DRONES;
+        }
+    }
+
+    public enum Priority {
+        INTERACTIVE, BACKGROUND
+    }
+
+    private static final Map<EndpointClass, RequestGovernor> governors = new EnumMap<>(EndpointClass.class);
+
+    static {
+        governors.put(EndpointClass.DYNAMICS, new RequestGovernor(10, 10, 6));
+        governors.put(EndpointClass.DRONES, new RequestGovernor(10, 10, 4));
+        governors.put(EndpointClass.DRONETYPES, new RequestGovernor(5, 5, 2));
+    }
+
+    private final RateLimiter limiter;
+    private final int maxInFlight;
+    private final Deque<CompletableFuture<Permit>> interactive = new ArrayDeque<>();
+    private final Deque<CompletableFuture<Permit>> background = new ArrayDeque<>();
+    private int inFlight;
+    private boolean wakeUpScheduled;
+
+    /**
+     * One admitted request. Releasing it frees its slot; releasing twice has no effect.
+     */
+    public class Permit {
+        private boolean released;
+
+        public void release() {
+            synchronized (RequestGovernor.this) {
+                if (released) {
+                    return;
+                }
+                released = true;
+                inFlight--;
+            }
+            dispatch();
+        }
+    }
+
+    public RequestGovernor(double requestsPerSecond, int burst, int maxInFlight) {
+        if (maxInFlight < 1) {
+            throw new IllegalArgumentException("Invalid number of requests in flight: " + maxInFlight);
+        }
+        this.limiter = new RateLimiter(requestsPerSecond, burst);
+        this.maxInFlight = maxInFlight;
+    }
+
+    /**
+     * Returns the governor of the endpoint class.
+     */
+    public static synchronized RequestGovernor of(EndpointClass endpointClass) {
+        return governors.get(endpointClass);
+    }
+
+    /**
+     * Replaces the budget of an endpoint class. Requests already admitted or queued stay with
+     * the old governor.
+     */
+    public static synchronized void configure(EndpointClass endpointClass, double requestsPerSecond, int burst, int maxInFlight) {
+        governors.put(endpointClass, new RequestGovernor(requestsPerSecond, burst, maxInFlight));
+    }
+
+    /**
+     * Queues a request and returns a future that completes with its Permit once it may be sent.
+     */
+    public CompletableFuture<Permit> acquire(Priority priority) {
+        CompletableFuture<Permit> waiter = new CompletableFuture<>();
+        synchronized (this) {
+            (priority == Priority.INTERACTIVE ? interactive : background).addLast(waiter);
+        }
+        dispatch();
+        return waiter;
+    }
+
+    public synchronized int getInFlight() {
+        return inFlight;
+    }
+
+    public synchronized int getQueued() {
+        return interactive.size() + background.size();
+    }
+
+    /**
+     * Admits queued requests while slots and rate permits are available. Permits are completed
+     * outside the lock, since completing runs the request's continuation.
+     */
+    private void dispatch() {
+        while (true) {
+            CompletableFuture<Permit> waiter;
+            Permit permit;
+            synchronized (this) {
+                dropCancelled(interactive);
+                dropCancelled(background);
+                Deque<CompletableFuture<Permit>> queue;
+                if (!interactive.isEmpty() && inFlight < maxInFlight) {
+                    queue = interactive;
+                } else if (!background.isEmpty() && inFlight < Math.max(1, maxInFlight - 1)) {
+                    // The last slot is kept for interactive requests
+                    queue = background;
+                } else {
+                    return;
+                }
+                long waitNanos = limiter.tryAcquire();
+                if (waitNanos > 0) {
+                    scheduleWakeUp(waitNanos);
+                    return;
+                }
+                waiter = queue.pollFirst();
+                inFlight++;
+                permit = new Permit();
+            }
+            if (!waiter.complete(permit)) {
+                // Cancelled after the queue was checked, give the slot back
+                synchronized (this) {
+                    permit.released = true;
+                    inFlight--;
+                }
+            }
+        }
+    }
+
+    private static void dropCancelled(Deque<CompletableFuture<Permit>> queue) {
+        while (!queue.isEmpty() && queue.peekFirst().isDone()) {
+            queue.pollFirst();
+        }
+    }
+
+    private void scheduleWakeUp(long waitNanos) {
+        if (wakeUpScheduled) {
+            return;
+        }
+        wakeUpScheduled = true;
+        CompletableFuture.delayedExecutor(waitNanos, TimeUnit.NANOSECONDS).execute(() -> {
+            synchronized (this) {
+                wakeUpScheduled = false;
+            }
+            dispatch();
+        });
+    }
+}
@@ -0,0 +1,378 @@
+package API;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntFunction;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * The StandInServer is a local replacement for the dronesim API, for offline development and
+ * for measuring the client reproducibly. It runs on the JDK's built-in com.sun.net.httpserver.
+ * <p>
+ * It serves a synthetic fleet of any size under the same paths as the real server:
+ * - /api/drones/ and /api/drones/{id}/
+ * - /api/dronetypes/ and /api/dronetypes/{id}/
+ * - /api/{id}/dynamics/
+ * Lists are paginated with limit and offset and answer with count, next, previous and results,
+ * like the real API. All data is derived from the seed, so the same seed always serves the same
+ * fleet; nothing is kept in memory per record. With setGrowth every drone gets a new dynamics
+ * record at a fixed interval, for live polling.
+ * <p>
+ * Every response carries an ETag and is answered with 304 when it matches If-None-Match, and is
+ * gzip compressed when the client accepts it. Latency and a rate of 503 errors can be injected.
+ * <p>
+ * Run it on its own with main, e.g. {@code --port 8000 --drones 200 --records 5000 --latency 80},
+ * or embedded: start it and pass getBaseUrl to api.configureBaseUrl.
+ */
+public class StandInServer {
+    private static final int DEFAULT_LIMIT = 10;
+    private static final int MAX_LIMIT = 1000;
+    private static final int TYPE_COUNT = 12;
+    private static final long RECORD_INTERVAL_SECONDS = 10;
+    private static final OffsetDateTime EPOCH = OffsetDateTime.of(2024, 1, 1, 8, 0, 0, 0, ZoneOffset.ofHours(1));
+    private static final DateTimeFormatter ISO_MICROS = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSSSSSXXX");
+    private static final String[] MANUFACTURERS = {"DJI", "Parrot", "Skydio", "Autel", "Yuneec", "senseFly"};
+    private static final String[] CARRIAGE_TYPES = {"NOT", "ACT", "SEN"};
+    private static final Pattern DRONE = Pattern.compile("/api/drones/(\\d+)/");
+    private static final Pattern DRONETYPE = Pattern.compile("/api/dronetypes/(\\d+)/");
+    private static final Pattern DYNAMICS = Pattern.compile("/api/(\\d+)/dynamics/");
+
+    private final int fleetSize;
+    private final int recordsPerDrone;
+    private final long seed;
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong injectedErrors = new AtomicLong();
+    private volatile long latencyMillis;
+    private volatile long jitterMillis;
+    private volatile double errorRate;
+    private volatile long growthMillis;
+    private volatile boolean compression = true;
+    private HttpServer server;
+    private ExecutorService executor;
+    private long startedAt;
+
+    /**
+     * @param fleetSize       the number of drones, with ids 1 to fleetSize
+     * @param recordsPerDrone the number of dynamics records every drone has at start
+     * @param seed            the seed all data is derived from
+     */
+    public StandInServer(int fleetSize, int recordsPerDrone, long seed) {
+        this.fleetSize = fleetSize;
+        this.recordsPerDrone = recordsPerDrone;
+        this.seed = seed;
+    }
+
+    /**
+     * Delays every response by the latency plus a random share of the jitter.
+     */
+    public void setLatency(Duration latency, Duration jitter) {
+        this.latencyMillis = latency.toMillis();
+        this.jitterMillis = jitter.toMillis();
+    }
+
+    /**
+     * Answers the given fraction of requests, between 0 and 1, with a 503 instead.
+     */
+    public void setErrorRate(double errorRate) {
+        this.errorRate = errorRate;
+    }
+
+    /**
+     * Adds one dynamics record to every drone each interval after start; null keeps the
+     * records fixed.
+     */
+    public void setGrowth(Duration interval) {
+        this.growthMillis = interval == null ? 0 : interval.toMillis();
+    }
+
+    public void setCompression(boolean compression) {
+        this.compression = compression;
+    }
+
+    /**
+     * Starts the server on the loopback interface. Port 0 picks a free port.
+     */
+    public synchronized void start(int port) throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        // Latency is injected by sleeping, so every exchange needs its own thread
+        executor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "stand-in-server");
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.setExecutor(executor);
+        server.createContext("/", this::handle);
+        startedAt = System.currentTimeMillis();
+        server.start();
+    }
+
+    public synchronized void stop() {
+        if (server != null) {
+            server.stop(0);
+            executor.shutdownNow();
+            server = null;
+        }
+    }
+
+    public synchronized String getBaseUrl() {
+        return "http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort();
+    }
+
+    public long getRequestCount() {
+        return requests.get();
+    }
+
+    public long getInjectedErrorCount() {
+        return injectedErrors.get();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            requests.incrementAndGet();
+            delay();
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                send(exchange, 405, "{\"detail\":\"Method not allowed.\"}");
+                return;
+            }
+            if (errorRate > 0 && ThreadLocalRandom.current().nextDouble() < errorRate) {
+                injectedErrors.incrementAndGet();
+                send(exchange, 503, "{\"detail\":\"Injected error.\"}");
+                return;
+            }
+            JSONObject body = route(exchange.getRequestURI().getPath(), query(exchange.getRequestURI().getRawQuery()));
+            if (body == null) {
+                send(exchange, 404, "{\"detail\":\"Not found.\"}");
+                return;
+            }
+            send(exchange, 200, body.toString());
+        } catch (RuntimeException e) {
+            send(exchange, 500, new JSONObject().put("detail", e.toString()).toString());
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private JSONObject route(String path, Map<String, String> query) {
+        if (path.equals("/api/drones/")) {
+            return page(path, query, fleetSize, index -> drone(index + 1));
+        }
+        if (path.equals("/api/dronetypes/")) {
+            return page(path, query, TYPE_COUNT, index -> droneType(index + 1));
+        }
+        Matcher matcher = DRONE.matcher(path);
+        if (matcher.matches()) {
+            int id = Integer.parseInt(matcher.group(1));
+            return id >= 1 && id <= fleetSize ? drone(id) : null;
+        }
+        matcher = DRONETYPE.matcher(path);
+        if (matcher.matches()) {
+            int id = Integer.parseInt(matcher.group(1));
+            return id >= 1 && id <= TYPE_COUNT ? droneType(id) : null;
+        }
+        matcher = DYNAMICS.matcher(path);
+        if (matcher.matches()) {
+            int id = Integer.parseInt(matcher.group(1));
+            return id >= 1 && id <= fleetSize ? page(path, query, recordCount(), index -> dynamics(id, index)) : null;
+        }
+        return null;
+    }
+
+    private JSONObject page(String path, Map<String, String> query, int count, IntFunction<JSONObject> item) {
+        int limit = Math.min(MAX_LIMIT, Math.max(1, intParameter(query, "limit", DEFAULT_LIMIT)));
+        int offset = Math.max(0, intParameter(query, "offset", 0));
+        JSONArray results = new JSONArray();
+        for (int index = offset; index < Math.min(count, offset + limit); index++) {
+            results.put(item.apply(index));
+        }
+        String url = getBaseUrl() + path + "?limit=" + limit + "&offset=";
+        return new JSONObject()
+                .put("count", count)
+                .put("next", offset + limit < count ? url + (offset + limit) : JSONObject.NULL)
+                .put("previous", offset > 0 ? url + Math.max(0, offset - limit) : JSONObject.NULL)
+                .put("results", results);
+    }
+
+    private int recordCount() {
+        if (growthMillis <= 0) {
+            return recordsPerDrone;
+        }
+        return recordsPerDrone + (int) ((System.currentTimeMillis() - startedAt) / growthMillis);
+    }
+
+    private JSONObject drone(int id) {
+        SplittableRandom random = random(1, id, 0);
+        int type = 1 + (id - 1) % TYPE_COUNT;
+        return new JSONObject()
+                .put("id", id)
+                .put("dronetype", getBaseUrl() + "/api/dronetypes/" + type + "/")
+                .put("created", format(EPOCH.minusDays(30 + random.nextInt(300))))
+                .put("serialnumber", String.format("SN-%06d", random.nextInt(1_000_000)))
+                .put("carriage_weight", random.nextInt(50, 2000))
+                .put("carriage_type", CARRIAGE_TYPES[random.nextInt(CARRIAGE_TYPES.length)]);
+    }
+
+    private JSONObject droneType(int id) {
+        SplittableRandom random = random(2, id, 0);
+        return new JSONObject()
+                .put("id", id)
+                .put("manufacturer", MANUFACTURERS[(id - 1) % MANUFACTURERS.length])
+                .put("typename", "Model " + (char) ('A' + (id - 1) % 26) + id)
+                .put("weight", random.nextInt(200, 5000))
+                .put("max_speed", random.nextInt(20, 120))
+                .put("battery_capacity", batteryCapacity(id))
+                .put("control_range", random.nextInt(500, 15000))
+                .put("max_carriage", random.nextInt(100, 3000));
+    }
+
+    /**
+     * The record at the given index of a drone's dynamics. Drones alternate between flights and
+     * idle phases, so some records move and some do not.
+     */
+    private JSONObject dynamics(int drone, int index) {
+        SplittableRandom random = random(3, drone, index);
+        SplittableRandom home = random(4, drone, 0);
+        boolean flying = (index / 20 + drone) % 3 != 0;
+        double step = flying ? index * 0.0005 : (index / 20) * 20 * 0.0005;
+        int capacity = batteryCapacity(1 + (drone - 1) % TYPE_COUNT);
+        OffsetDateTime timestamp = EPOCH.plusSeconds(index * RECORD_INTERVAL_SECONDS);
+        return new JSONObject()
+                .put("drone", getBaseUrl() + "/api/drones/" + drone + "/")
+                .put("timestamp", format(timestamp))
+                .put("speed", flying ? random.nextInt(5, 80) : 0)
+                .put("align_roll", flying ? round(random.nextDouble(-10, 10)) : 0.0)
+                .put("align_pitch", flying ? round(random.nextDouble(-10, 10)) : 0.0)
+                .put("align_yaw", round(random.nextDouble(0, 360)))
+                .put("longitude", round(8.0 + home.nextDouble(0, 2) + step))
+                .put("latitude", round(50.0 + home.nextDouble(0, 2) + step / 2))
+                .put("battery_status", capacity - (index * 7) % capacity)
+                .put("last_seen", format(timestamp.plusNanos(random.nextInt(1_000_000) * 1_000L)))
+                .put("status", flying ? "ON" : "OFF");
+    }
+
+    private int batteryCapacity(int type) {
+        return random(2, type, 1).nextInt(2000, 8000);
+    }
+
+    private SplittableRandom random(int kind, int id, int index) {
+        return new SplittableRandom(seed * 0x9E3779B97F4A7C15L + kind * 0xBF58476D1CE4E5B9L + id * 0x94D049BB133111EBL + index);
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 1_000_000) / 1_000_000.0;
+    }
+
+    private static String format(OffsetDateTime time) {
+        return time.format(ISO_MICROS);
+    }
+
+    private void delay() {
+        long millis = latencyMillis + (jitterMillis > 0 ? ThreadLocalRandom.current().nextLong(jitterMillis + 1) : 0);
+        if (millis > 0) {
+            try {
+                Thread.sleep(millis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void send(HttpExchange exchange, int status, String json) throws IOException {
+        byte[] body = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        if (status == 200) {
+            String etag = "\"" + Integer.toHexString(json.hashCode()) + "\"";
+            exchange.getResponseHeaders().set("ETag", etag);
+            if (etag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                exchange.sendResponseHeaders(304, -1);
+                return;
+            }
+        }
+        String accepted = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+        if (compression && accepted != null && accepted.contains("gzip")) {
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+            try (OutputStream gzip = new GZIPOutputStream(compressed)) {
+                gzip.write(body);
+            }
+            body = compressed.toByteArray();
+            exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+        }
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private static Map<String, String> query(String rawQuery) {
+        Map<String, String> parameters = new HashMap<>();
+        if (rawQuery == null) {
+            return parameters;
+        }
+        for (String pair : rawQuery.split("&")) {
+            String[] parts = pair.split("=", 2);
+            parameters.put(URLDecoder.decode(parts[0], StandardCharsets.UTF_8),
+                    parts.length > 1 ? URLDecoder.decode(parts[1], StandardCharsets.UTF_8) : "");
+        }
+        return parameters;
+    }
+
+    private static int intParameter(Map<String, String> query, String name, int fallback) {
+        try {
+            return query.containsKey(name) ? Integer.parseInt(query.get(name)) : fallback;
+        } catch (NumberFormatException e) {
+            return fallback;
+        }
+    }
+
+    /**
+     * Runs a stand-in server until the process is stopped. Options: --port, --drones, --records,
+     * --seed, --latency and --jitter in milliseconds, --errors as a fraction, --grow as the
+     * milliseconds between new records, --no-gzip.
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--no-gzip")) {
+                options.put("no-gzip", "true");
+            } else if (args[i].startsWith("--") && i + 1 < args.length) {
+                options.put(args[i].substring(2), args[++i]);
+            }
+        }
+        StandInServer server = new StandInServer(Integer.parseInt(options.getOrDefault("drones", "50")),
+                Integer.parseInt(options.getOrDefault("records", "1000")),
+                Long.parseLong(options.getOrDefault("seed", "42")));
+        server.setLatency(Duration.ofMillis(Long.parseLong(options.getOrDefault("latency", "0"))),
+                Duration.ofMillis(Long.parseLong(options.getOrDefault("jitter", "0"))));
+        server.setErrorRate(Double.parseDouble(options.getOrDefault("errors", "0")));
+        if (options.containsKey("grow")) {
+            server.setGrowth(Duration.ofMillis(Long.parseLong(options.get("grow"))));
+        }
+        server.setCompression(!options.containsKey("no-gzip"));
+        server.start(Integer.parseInt(options.getOrDefault("port", "8000")));
+        Runtime.getRuntime().addShutdownHook(new Thread(server::stop));
+        System.out.println("Stand-in dronesim serving at " + server.getBaseUrl());
+        Thread.currentThread().join();
+    }
+}
@@ -1,17 +1,98 @@
 package API;
 
-import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.net.HttpURLConnection;
-import java.net.URL;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * The api class wraps the HTTP access to the drone simulator backend.
+ * <p>
+ * All instances share one pooled java.net.http.HttpClient, so TCP connections are kept
+ * alive and reused between requests instead of being opened and torn down for every call.
+ * HTTP/2 is negotiated when the server supports it, otherwise the client falls back to HTTP/1.1.
+ * <p>
+ * Connect and read timeouts apply to every instance and can be changed with configureTimeouts.
+ * <p>
+ * The getAsync family is stateless and returns a CompletableFuture that completes on the
+ * client's own threads, so one instance can keep many requests in flight at once.
+ * createConnection and retrieveResponse remain for blocking callers; they keep the prepared
+ * request on the instance and must not be shared between threads.
+ * <p>
+ * Plain GETs through getAsync and retrieveResponse are coalesced: while a request for a URL is
+ * in flight, further requests for the same URL share its response instead of going to the
+ * network again.
+ * <p>
+ * Failed GETs are retried with exponential backoff and jitter on I/O errors, 5xx and 429 responses.
+ * Every host has a CircuitBreaker: while it is open, requests fail at once instead of piling onto a
+ * server that is down. While the breaker is open or the failure is transient (see isTransient),
+ * getAsync falls back to the last good response for the same URL, if one has been seen; a 4xx is
+ * never answered that way. Streamed pages have no such copy here; the views fall back to the
+ * last good page in their PageCache instead.
+ * <p>
+ * Every attempt is admitted by the RequestGovernor of its endpoint class (dynamics, drones,
+ * dronetypes), which bounds the request rate and the requests in flight. Instances are
+ * interactive by default; background jobs mark theirs with setPriority so that they queue
+ * behind what the user is looking at. A streamed body holds its slot until it is closed.
+ * <p>
+ * Endpoints with a max-age in the HttpCache, such as drone types and drones, are served from
+ * disk while fresh and revalidated with conditional requests once stale. Their pages are read
+ * in full before parsing, the other endpoints stream as before.
+ * <p>
+ * Requests accept gzip and deflate responses, which are decoded by the ContentDecoding body
+ * handlers; streamed pages are inflated on the fly as the parser reads them.
+ */
 public class api {
+    private static final String DEFAULT_BASE_URL = "http://dronesim.facets-labs.com";
+    private static String baseUrl = trimSlash(System.getProperty("dronesim.url",
+            System.getenv().getOrDefault("DRONESIM_URL", DEFAULT_BASE_URL)));
+    private static Duration connectTimeout = Duration.ofSeconds(10);
+    private static Duration readTimeout = Duration.ofSeconds(30);
+    private static HttpClient sharedClient;
+    private static final Map<String, CompletableFuture<String>> inFlight = new ConcurrentHashMap<>();
+    private static final int MAX_ATTEMPTS = 3;
+    private static final long BASE_BACKOFF_MILLIS = 200;
+    private static final long MAX_BACKOFF_MILLIS = 5_000;
+    private static final int STALE_ENTRIES = 256;
+    private static final Map<String, String> staleBodies = new LinkedHashMap<>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+            return size() > STALE_ENTRIES;
+        }
+    };
+    private static final ExecutorService bodyExecutor = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "api-body-reader");
+        thread.setDaemon(true);
+        return thread;
+    });
+
     private String endpoint;
     private String domain;
     private String token;
     private String agent;
-    private HttpURLConnection connection;
+    private HttpRequest request;
+    private String requestEndpoint;
+    private RequestGovernor.Priority priority = RequestGovernor.Priority.INTERACTIVE;
 
     public api(String endpoint, String domain, String token, String agent) {
         this.endpoint = endpoint;
@@ -20,34 +101,437 @@ public class api {
         this.agent = agent;
     }
 
+    /**
+     * Returns the base URL of the drone simulator that all views fetch from. It defaults to the
+     * public dronesim server and can be set with the dronesim.url system property, the
+     * DRONESIM_URL environment variable or configureBaseUrl, e.g. to point at a StandInServer.
+     */
+    public static synchronized String getBaseUrl() {
+        return baseUrl;
+    }
+
+    /**
+     * Changes the base URL for every api instance created from now on.
+     */
+    public static synchronized void configureBaseUrl(String url) {
+        baseUrl = trimSlash(url);
+    }
+
+    private static String trimSlash(String url) {
+        return url.endsWith("/") ? url.substring(0, url.length() - 1) : url;
+    }
+
+    /**
+     * Changes the connect and read timeouts used by all api instances.
+     * The shared client is rebuilt lazily on the next request.
+     *
+     * @param connect the maximum time to establish a connection
+     * @param read    the maximum time to wait for a complete response
+     */
+    public static synchronized void configureTimeouts(Duration connect, Duration read) {
+        connectTimeout = connect;
+        readTimeout = read;
+        sharedClient = null;
+    }
+
+    static synchronized HttpClient client() {
+        if (sharedClient == null) {
+            sharedClient = HttpClient.newBuilder()
+                    .version(HttpClient.Version.HTTP_2)
+                    .connectTimeout(connectTimeout)
+                    .followRedirects(HttpClient.Redirect.NORMAL)
+                    .build();
+        }
+        return sharedClient;
+    }
+
+    static synchronized Duration readTimeout() {
+        return readTimeout;
+    }
+
+    HttpRequest newRequest(String endpoint) {
+        return requestBuilder(endpoint).build();
+    }
+
+    private HttpRequest.Builder requestBuilder(String endpoint) {
+        return HttpRequest.newBuilder(URI.create(domain + endpoint))
+                .GET()
+                .timeout(readTimeout())
+               // .header("Authorization", token); This line was originally implemented to secure the web entrance using our token. However, due to a recent hack at the university, it is no longer usable.
+                .header("User-Agent", agent)
+                .header("Accept-Encoding", ContentDecoding.ACCEPT_ENCODING);
+    }
+
+    /**
+     * Sets the priority the requests of this instance are admitted with.
+     */
+    public void setPriority(RequestGovernor.Priority priority) {
+        this.priority = priority;
+    }
+
     public void createConnection(String endpoint) throws IOException {
         try {
-            URL url = new URL(domain + endpoint);
-            connection = (HttpURLConnection) url.openConnection();
-            connection.setRequestMethod("GET");
-           // connection.setRequestProperty("Authorization", token); This line was originally implemented to secure the web entrance using our token. However, due to a recent hack at the university, it is no longer usable.
-            connection.setRequestProperty("User-Agent", agent);
-        } catch (IOException e) {
+            request = newRequest(endpoint);
+            requestEndpoint = endpoint;
+        } catch (IllegalArgumentException e) {
             System.err.println("Error creating connection: " + e.getMessage());
-            throw e;
+            throw new IOException("Invalid URL: " + domain + endpoint, e);
         }
     }
 
     public String retrieveResponse() throws IOException {
-        try (BufferedReader in = new BufferedReader(new InputStreamReader(connection.getInputStream()))) {
-            String inputLine;
-            StringBuilder content = new StringBuilder();
-            while ((inputLine = in.readLine()) != null) {
-                content.append(inputLine);
+        try {
+            // Shares the response with concurrent callers asking for the same URL
+            return getAsync(requestEndpoint).get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                System.err.println("Error retrieving response: " + e.getCause().getMessage());
+                throw (IOException) e.getCause();
+            }
+            throw new IOException("Error retrieving response from " + request.uri(), e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Request interrupted: " + request.uri());
+        }
+    }
+
+    /**
+     * Sends a GET request for the given endpoint without blocking the calling thread. If the
+     * same URL is already being fetched, the response of that request is shared instead.
+     *
+     * @param endpoint the path and query relative to the domain
+     * @return a future completed with the response body, or failed with an IOException
+     */
+    public CompletableFuture<String> getAsync(String endpoint) {
+        String key = domain + endpoint;
+        CompletableFuture<String> shared = new CompletableFuture<>();
+        CompletableFuture<String> running = inFlight.putIfAbsent(key, shared);
+        if (running != null) {
+            // Every caller gets its own copy, so one caller cancelling does not affect the others
+            return running.copy();
+        }
+        CompletableFuture<String> fetch = isCached(endpoint)
+                ? cachedAsync(endpoint, FetchEpoch.Token.NONE).thenApply(body -> new String(body, StandardCharsets.UTF_8))
+                : sendAsync(endpoint, ContentDecoding.ofString());
+        fetch.whenComplete((body, error) -> {
+            // Leave the flight first, a request made after completion goes to the network again
+            inFlight.remove(key, shared);
+            if (error == null) {
+                rememberBody(key, body);
+                shared.complete(body);
+                return;
+            }
+            Throwable failure = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+            String stale = staleBody(key);
+            if (stale != null && isTransient(failure)) {
+                // The upstream is failing or its breaker is open, the last good answer beats no answer
+                System.err.println("Serving stale response for " + key + ": " + failure.getMessage());
+                shared.complete(stale);
+            } else {
+                shared.completeExceptionally(failure);
+            }
+        });
+        return shared.copy();
+    }
+
+    /**
+     * Fetches a paginated endpoint and parses it while the body streams in, mapping every
+     * element of "results" with the given mapper as soon as it has arrived.
+     */
+    public <T> CompletableFuture<PageParser.Page<T>> getPageAsync(String endpoint, PageParser.ElementMapper<T> mapper) {
+        return getPageAsync(endpoint, mapper, FetchEpoch.Token.NONE);
+    }
+
+    /**
+     * Same as getPageAsync, but tied to a fetch token. Cancelling the token aborts the HTTP
+     * exchange or, once the body is streaming, closes the body and stops mapping elements;
+     * the returned future then fails with a CancellationException.
+     */
+    public <T> CompletableFuture<PageParser.Page<T>> getPageAsync(String endpoint, PageParser.ElementMapper<T> mapper, FetchEpoch.Token token) {
+        return getPageAsync(endpoint, mapper, token, null);
+    }
+
+    /**
+     * Same as getPageAsync with a fetch token, and counts the bytes of the body into the given
+     * progress as they are read. The progress may be null.
+     */
+    public <T> CompletableFuture<PageParser.Page<T>> getPageAsync(String endpoint, PageParser.ElementMapper<T> mapper, FetchEpoch.Token token, FetchProgress progress) {
+        CompletableFuture<InputStream> response = isCached(endpoint)
+                ? cachedAsync(endpoint, token).thenApply(ByteArrayInputStream::new)
+                : sendAsync(endpoint, ContentDecoding.ofInputStream(), token);
+        return response.thenApplyAsync(stream -> {
+            token.register(stream);
+            InputStream body = progress == null ? stream : new CountingInputStream(stream, progress);
+            try {
+                return PageParser.parse(body, element -> {
+                    token.throwIfCancelled();
+                    return mapper.map(element);
+                });
+            } catch (IOException e) {
+                // Closing the body on cancel surfaces as an I/O error in the parser
+                token.throwIfCancelled();
+                throw new CompletionException(e);
+            } finally {
+                // The parser has closed the body, the token no longer needs to
+                token.unregister(stream);
+            }
+        }, bodyExecutor);
+    }
+
+    private <T> CompletableFuture<T> sendAsync(String endpoint, HttpResponse.BodyHandler<T> handler) {
+        return sendAsync(endpoint, handler, FetchEpoch.Token.NONE);
+    }
+
+    private <T> CompletableFuture<T> sendAsync(String endpoint, HttpResponse.BodyHandler<T> handler, FetchEpoch.Token token) {
+        HttpRequest asyncRequest;
+        try {
+            asyncRequest = newRequest(endpoint);
+        } catch (IllegalArgumentException e) {
+            return CompletableFuture.failedFuture(new IOException("Invalid URL: " + domain + endpoint, e));
+        }
+        RequestGovernor governor = RequestGovernor.of(RequestGovernor.EndpointClass.of(asyncRequest.uri().getPath()));
+        return attempt(asyncRequest, handler, token, governor, CircuitBreaker.forHost(asyncRequest.uri()), 1);
+    }
+
+    private boolean isCached(String endpoint) {
+        try {
+            return HttpCache.getInstance().isCached(URI.create(domain + endpoint));
+        } catch (IllegalArgumentException e) {
+            // Reported by sendAsync
+            return false;
+        }
+    }
+
+    /**
+     * Fetches an endpoint through the HttpCache. A fresh entry is served without a request, a
+     * stale one is revalidated with its validators; if the request fails, the entry on disk is
+     * served anyway. The disk is only touched on the body reader threads.
+     */
+    private CompletableFuture<byte[]> cachedAsync(String endpoint, FetchEpoch.Token token) {
+        HttpCache cache = HttpCache.getInstance();
+        URI uri = URI.create(domain + endpoint);
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return cache.lookup(uri);
+            } catch (IOException e) {
+                System.err.println("Ignoring unreadable cache entry for " + uri + ": " + e.getMessage());
+                return null;
+            }
+        }, bodyExecutor).thenCompose(entry -> {
+            if (entry != null && cache.isFresh(uri, entry)) {
+                return CompletableFuture.completedFuture(entry.body());
+            }
+            HttpRequest.Builder builder = requestBuilder(endpoint);
+            if (entry != null && entry.etag() != null) {
+                builder.header("If-None-Match", entry.etag());
+            }
+            if (entry != null && entry.lastModified() != null) {
+                builder.header("If-Modified-Since", entry.lastModified());
+            }
+            HttpRequest conditional = builder.build();
+            RequestGovernor governor = RequestGovernor.of(RequestGovernor.EndpointClass.of(uri.getPath()));
+            return attempt(conditional, HttpCache.Fetched.handler(), token, governor, CircuitBreaker.forHost(uri), 1)
+                    .handleAsync((fetched, error) -> {
+                        if (error != null) {
+                            Throwable failure = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                            if (entry == null || !isTransient(failure)) {
+                                throw error instanceof CompletionException ? (CompletionException) error : new CompletionException(failure);
+                            }
+                            System.err.println("Serving cached response for " + uri + ": " + failure.getMessage());
+                            return entry.body();
+                        }
+                        try {
+                            if (fetched.statusCode() == 304 && entry != null) {
+                                return cache.revalidated(uri, entry, fetched.headers()).body();
+                            }
+                            cache.store(uri, fetched.headers(), fetched.body());
+                        } catch (IOException e) {
+                            // The response is good even if it could not be cached
+                            System.err.println("Could not cache response for " + uri + ": " + e.getMessage());
+                        }
+                        return fetched.body();
+                    }, bodyExecutor);
+        });
+    }
+
+    /**
+     * Sends one attempt of a GET once the governor admits it and, if it fails in a way worth
+     * retrying, schedules the next attempt after an exponential backoff with full jitter. All
+     * requests here are idempotent GETs.
+     */
+    private <T> CompletableFuture<T> attempt(HttpRequest asyncRequest, HttpResponse.BodyHandler<T> handler, FetchEpoch.Token token,
+                                             RequestGovernor governor, CircuitBreaker breaker, int attempt) {
+        return token.register(governor.acquire(priority)).thenCompose(permit -> {
+            CircuitBreaker.Admission admission = breaker.admit();
+            if (admission == CircuitBreaker.Admission.REJECTED) {
+                permit.release();
+                return CompletableFuture.<T>failedFuture(new CircuitBreaker.OpenException(breaker.getHost()));
+            }
+            // Cancelling the client's own future aborts the exchange; derived futures would not
+            return token.register(client().sendAsync(asyncRequest, handler)).handle((response, error) -> {
+                Throwable failure = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                if (failure instanceof UncheckedIOException) {
+                    // A body that could not be decoded
+                    failure = failure.getCause();
+                }
+                if (failure instanceof CancellationException) {
+                    permit.release();
+                    if (admission == CircuitBreaker.Admission.TRIAL) {
+                        // A cancelled trial says nothing about the host, let the next request try
+                        breaker.releaseTrial();
+                    }
+                    return CompletableFuture.<T>failedFuture(failure);
+                }
+                boolean retryable;
+                if (failure == null) {
+                    int status = response.statusCode();
+                    if (status < 500 && status != 429) {
+                        // The server answered, even a 404 means it is up
+                        breaker.recordSuccess();
+                        try {
+                            checkStatus(response);
+                            return CompletableFuture.completedFuture(holdUntilClosed(response.body(), permit));
+                        } catch (IOException e) {
+                            closeBody(response);
+                            permit.release();
+                            return CompletableFuture.<T>failedFuture(e);
+                        }
+                    }
+                    closeBody(response);
+                    failure = new StatusException(status, response.uri());
+                    retryable = true;
+                } else {
+                    retryable = failure instanceof IOException;
+                }
+                permit.release();
+                breaker.recordFailure();
+                if (!retryable || attempt >= MAX_ATTEMPTS || token.isCancelled()) {
+                    return CompletableFuture.<T>failedFuture(failure);
+                }
+                Executor delayed = CompletableFuture.delayedExecutor(backoffMillis(attempt), TimeUnit.MILLISECONDS);
+                return CompletableFuture.supplyAsync(() -> null, delayed)
+                        .thenCompose(ignored -> attempt(asyncRequest, handler, token, governor, breaker, attempt + 1));
+            }).thenCompose(result -> result);
+        });
+    }
+
+    /**
+     * Releases the permit once the body is complete: right away for a body that has been read
+     * already, when it is closed for a streamed one.
+     */
+    @SuppressWarnings("unchecked")
+    private static <T> T holdUntilClosed(T body, RequestGovernor.Permit permit) {
+        if (body instanceof InputStream) {
+            return (T) new FilterInputStream((InputStream) body) {
+                @Override
+                public void close() throws IOException {
+                    try {
+                        super.close();
+                    } finally {
+                        permit.release();
+                    }
+                }
+            };
+        }
+        permit.release();
+        return body;
+    }
+
+    /**
+     * Returns a random delay between 0 and the exponential backoff ceiling of the attempt.
+     */
+    static long backoffMillis(int attempt) {
+        long ceiling = Math.min(MAX_BACKOFF_MILLIS, BASE_BACKOFF_MILLIS << Math.min(attempt - 1, 20));
+        return ThreadLocalRandom.current().nextLong(ceiling + 1);
+    }
+
+    private static void closeBody(HttpResponse<?> response) {
+        if (response.body() instanceof InputStream) {
+            try {
+                ((InputStream) response.body()).close();
+            } catch (IOException ignored) {
+                // the request already failed, nothing left to release
+            }
+        }
+    }
+
+    private static void rememberBody(String url, String body) {
+        synchronized (staleBodies) {
+            staleBodies.put(url, body);
+        }
+    }
+
+    private static String staleBody(String url) {
+        synchronized (staleBodies) {
+            return staleBodies.get(url);
+        }
+    }
+
+    /**
+     * Reports every byte read from the body to a FetchProgress.
+     */
+    private static class CountingInputStream extends FilterInputStream {
+        private final FetchProgress progress;
+
+        CountingInputStream(InputStream in, FetchProgress progress) {
+            super(in);
+            this.progress = progress;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                progress.addBytes(1);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int off, int len) throws IOException {
+            int n = super.read(buffer, off, len);
+            if (n > 0) {
+                progress.addBytes(n);
             }
-            connection.disconnect();
-            return content.toString();
-        } catch (IOException e) {
-            System.err.println("Error retrieving response: " + e.getMessage());
-            throw e;
+            return n;
+        }
+    }
+
+    static void checkStatus(HttpResponse<?> response) throws IOException {
+        if (response.statusCode() >= 400) {
+            throw new StatusException(response.statusCode(), response.uri());
         }
     }
 
+    /**
+     * Returns true if the failure of a request says the upstream is unavailable for now, rather
+     * than that the request itself is wrong: an open circuit breaker, an I/O error, a 5xx or a
+     * 429. Only such failures are answered with an older copy of the response.
+     */
+    public static boolean isTransient(Throwable failure) {
+        Throwable cause = failure instanceof CompletionException && failure.getCause() != null ? failure.getCause() : failure;
+        if (cause instanceof StatusException) {
+            int status = ((StatusException) cause).getStatusCode();
+            return status >= 500 || status == 429;
+        }
+        return cause instanceof IOException;
+    }
 
+    /**
+     * Thrown for a response with an error status.
+     */
+    public static class StatusException extends IOException {
+        private static final long serialVersionUID = 1L;
+        private final int statusCode;
+
+        public StatusException(int statusCode, URI uri) {
+            super("Server returned HTTP response code: " + statusCode + " for URL: " + uri);
+            this.statusCode = statusCode;
+        }
+
+        public int getStatusCode() {
+            return statusCode;
+        }
+    }
 
 }
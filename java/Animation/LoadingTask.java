@@ -1,13 +1,15 @@
 package Animation;
 
+import API.FetchProgress;
 import javafx.animation.KeyFrame;
-import javafx.animation.KeyValue;
 import javafx.animation.Timeline;
+import javafx.geometry.Pos;
 import javafx.geometry.Rectangle2D;
 import javafx.scene.Scene;
+import javafx.scene.control.Button;
 import javafx.scene.control.Label;
 import javafx.scene.control.ProgressBar;
-import javafx.scene.layout.StackPane;
+import javafx.scene.layout.VBox;
 import javafx.stage.Modality;
 import javafx.stage.Screen;
 import javafx.stage.Stage;
@@ -15,85 +17,83 @@ import javafx.util.Duration;
 
 /**
  * The LoadingTask class provides a utility for displaying a loading popup with a progress bar.
- * It simulates a loading process using a timeline animation.
+ * The progress bar follows a real fetch through its FetchProgress.
  *Responsibilities:
- *Displays a modal loading popup with a progress bar and label.
- *Simulates a loading process and closes the popup when loading is complete.
+ *Displays a non-modal loading popup with a progress bar, a label and a Cancel button.
+ *Closes the popup as soon as the fetch is finished.
  *Centers the popup on the screen.
  */
 
 public class LoadingTask {
-
-    public static void showLoadingPopup() {
+    private static final Duration PROGRESS_POLL = Duration.millis(100);
+    private static final Duration PROGRESS_SHOW_DELAY = Duration.millis(250);
+
+    /**
+     * Shows a non-modal popup that follows the progress of a real fetch and closes as soon as
+     * the fetch is finished. The popup only appears if the fetch is still running after a short
+     * delay, so pages served from a cache never flash it. Its Cancel button runs onCancel.
+     *
+     * @param title    the title of the popup
+     * @param progress the progress of the fetch, updated by the fetch pipeline
+     * @param onCancel cancels the fetch
+     */
+    public static void showProgressPopup(String title, FetchProgress progress, Runnable onCancel) {
         Stage loadingStage = new Stage();
-        loadingStage.initModality(Modality.APPLICATION_MODAL);
-        loadingStage.setTitle("Loading...");
+        loadingStage.initModality(Modality.NONE);
+        loadingStage.setTitle(title);
 
-        // Create a progress bar
-        ProgressBar progressBar = new ProgressBar(0);
+        ProgressBar progressBar = new ProgressBar(ProgressBar.INDETERMINATE_PROGRESS);
         progressBar.setPrefWidth(200);
 
-        // Label for displaying text
-        Label loadingLabel = new Label("Loading...");
+        Label loadingLabel = new Label("Connecting...");
+
+        // Once dismissed, by Cancel or by closing the window, the popup never shows again
+        Timeline timeline = new Timeline();
+        boolean[] dismissed = {false};
+        Runnable dismiss = () -> {
+            dismissed[0] = true;
+            timeline.stop();
+            loadingStage.close();
+        };
+
+        Button cancelButton = new Button("Cancel");
+        cancelButton.setOnAction(event -> {
+            onCancel.run();
+            dismiss.run();
+        });
 
-        // StackPane to hold progress bar and label
-        StackPane loadingPane = new StackPane();
-        loadingPane.getChildren().addAll(progressBar, loadingLabel);
+        VBox loadingPane = new VBox(8, progressBar, loadingLabel, cancelButton);
+        loadingPane.setAlignment(Pos.CENTER);
 
-        Scene loadingScene = new Scene(loadingPane, 300, 100);
+        Scene loadingScene = new Scene(loadingPane, 300, 120);
         loadingStage.setScene(loadingScene);
-
         centerStageOnScreen(loadingStage);
-        loadingStage.show();
 
-        // Simulate loading process with a timeline
-        Duration duration = Duration.seconds(1);
-        Timeline timeline = new Timeline(
-                new KeyFrame(Duration.ZERO, new KeyValue(progressBar.progressProperty(), 0)),
-                new KeyFrame(duration, event -> {
-                    loadingStage.close(); // Close the stage when done
-                }, new KeyValue(progressBar.progressProperty(), 1))
-        );
+        // Sample the progress a few times per second instead of pushing every row to the FX thread
+        long startedAt = System.nanoTime();
+        timeline.getKeyFrames().add(new KeyFrame(PROGRESS_POLL, event -> {
+            if (progress.isFinished() || dismissed[0]) {
+                dismiss.run();
+                return;
+            }
+            progressBar.setProgress(progress.getFraction());
+            loadingLabel.setText(describe(progress));
+            if (!loadingStage.isShowing() && System.nanoTime() - startedAt >= PROGRESS_SHOW_DELAY.toMillis() * 1_000_000) {
+                loadingStage.show();
+            }
+        }));
+        timeline.setCycleCount(Timeline.INDEFINITE);
+        loadingStage.setOnCloseRequest(event -> dismiss.run());
         timeline.play();
     }
 
-
-    public static void showLoadingPopup2() {
-        Stage loadingStage = new Stage();
-        loadingStage.initModality(Modality.APPLICATION_MODAL);
-        loadingStage.setTitle("Loading...");
-
-
-        loadingStage.setOnCloseRequest(event -> {
-            event.consume(); // Consume the event to prevent closing
-        });
-
-        // Create a progress bar
-        ProgressBar progressBar = new ProgressBar(0);
-        progressBar.setPrefWidth(200);
-
-        // Label for displaying text
-        Label loadingLabel = new Label("Loading...");
-
-        // StackPane to hold progress bar and label
-        StackPane loadingPane = new StackPane();
-        loadingPane.getChildren().addAll(progressBar, loadingLabel);
-
-        Scene loadingScene = new Scene(loadingPane, 300, 100);
-        loadingStage.setScene(loadingScene);
-
-        centerStageOnScreen(loadingStage);
-        loadingStage.show();
-
-        // Simulate loading process with a timeline
-        Duration duration = Duration.seconds(2);
-        Timeline timeline = new Timeline(
-                new KeyFrame(Duration.ZERO, new KeyValue(progressBar.progressProperty(), 0)),
-                new KeyFrame(duration, event -> {
-                    loadingStage.close(); // Close the stage when done
-                }, new KeyValue(progressBar.progressProperty(), 1))
-        );
-        timeline.play();
+    private static String describe(FetchProgress progress) {
+        String received = String.format("%.1f KB received", progress.getBytes() / 1024.0);
+        int expected = progress.getExpectedRows();
+        if (expected < 0) {
+            return received;
+        }
+        return progress.getDoneRows() + " / " + expected + " rows, " + received;
     }
 
     private static void centerStageOnScreen(Stage stage) {
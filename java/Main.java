@@ -1,10 +1,18 @@
-
+import API.StandInServer;
+import API.api;
 import gui.DroneSimulatorGUI;
 import java.io.IOException;
+import java.util.Arrays;
 
 public class Main {
     public static void main(String[] args) throws IOException {
+        if (Arrays.asList(args).contains("--standin")) {
+            // Offline mode: serve a synthetic fleet locally instead of the dronesim server,
+            // large enough for every drone the dynamics view offers (31 to 80)
+            StandInServer standIn = new StandInServer(80, 1000, 42);
+            standIn.start(0);
+            api.configureBaseUrl(standIn.getBaseUrl());
+        }
         javafx.application.Application.launch(DroneSimulatorGUI.class, args);
     }
 }
-
@@ -0,0 +1,346 @@
+package Storage;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The DynamicsCodec encodes a batch of telemetry samples into one compact columnar block.
+ * <p>
+ * Block layout:
+ * - fixed header: version (1 byte), sample count (int), min and max timestamp in epoch micros (2 longs).
+ *   Readers use it to skip blocks outside a time range without decoding them.
+ * - drone number as varint.
+ * - timestamp and last_seen columns as zig-zag varints of the delta-of-delta, which is
+ *   zero for samples that arrive at a steady rate.
+ * - UTC offset column as zig-zag varint deltas.
+ * - speed and battery columns as zig-zag varints.
+ * - status column as a dictionary of the distinct strings followed by one varint index per sample.
+ * - roll, pitch, yaw, longitude and latitude columns XOR-compressed against the previous value
+ *   (leading/trailing zero bit packing), each prefixed with its byte length.
+ * <p>
+ * A block is self-contained, so any block of a file can be decoded on its own.
+ */
+public class DynamicsCodec {
+    public static final byte VERSION = 1;
+    public static final int HEADER_BYTES = 1 + Integer.BYTES + 2 * Long.BYTES;
+
+    /**
+     * The fixed header of an encoded block.
+     */
+    public static class BlockHeader {
+        private final int count;
+        private final long minTimestamp;
+        private final long maxTimestamp;
+
+        BlockHeader(int count, long minTimestamp, long maxTimestamp) {
+            this.count = count;
+            this.minTimestamp = minTimestamp;
+            this.maxTimestamp = maxTimestamp;
+        }
+
+        public int getCount() {
+            return count;
+        }
+
+        public long getMinTimestamp() {
+            return minTimestamp;
+        }
+
+        public long getMaxTimestamp() {
+            return maxTimestamp;
+        }
+    }
+
+    public static byte[] encode(List<TelemetrySample> samples) {
+        if (samples.isEmpty()) {
+            throw new IllegalArgumentException("Cannot encode an empty block");
+        }
+        long min = Long.MAX_VALUE;
+        long max = Long.MIN_VALUE;
+        for (TelemetrySample sample : samples) {
+            min = Math.min(min, sample.getTimestampMicros());
+            max = Math.max(max, sample.getTimestampMicros());
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream(64 + samples.size() * 24);
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        header.put(VERSION).putInt(samples.size()).putLong(min).putLong(max);
+        out.write(header.array(), 0, HEADER_BYTES);
+
+        writeVarint(out, samples.get(0).getDrone());
+
+        long previous = 0;
+        long previousDelta = 0;
+        for (TelemetrySample sample : samples) {
+            long delta = sample.getTimestampMicros() - previous;
+            writeSignedVarint(out, delta - previousDelta);
+            previous = sample.getTimestampMicros();
+            previousDelta = delta;
+        }
+        previous = 0;
+        previousDelta = 0;
+        for (TelemetrySample sample : samples) {
+            long delta = sample.getLastSeenMicros() - previous;
+            writeSignedVarint(out, delta - previousDelta);
+            previous = sample.getLastSeenMicros();
+            previousDelta = delta;
+        }
+        previous = 0;
+        for (TelemetrySample sample : samples) {
+            writeSignedVarint(out, sample.getOffsetSeconds() - previous);
+            previous = sample.getOffsetSeconds();
+        }
+        for (TelemetrySample sample : samples) {
+            writeSignedVarint(out, sample.getSpeed());
+        }
+        for (TelemetrySample sample : samples) {
+            writeSignedVarint(out, sample.getBatteryStatus());
+        }
+
+        Map<String, Integer> dictionary = new LinkedHashMap<>();
+        for (TelemetrySample sample : samples) {
+            dictionary.putIfAbsent(sample.getStatus(), dictionary.size());
+        }
+        writeVarint(out, dictionary.size());
+        for (String status : dictionary.keySet()) {
+            byte[] bytes = status.getBytes(StandardCharsets.UTF_8);
+            writeVarint(out, bytes.length);
+            out.write(bytes, 0, bytes.length);
+        }
+        for (TelemetrySample sample : samples) {
+            writeVarint(out, dictionary.get(sample.getStatus()));
+        }
+
+        writeDoubles(out, samples, TelemetrySample::getAlignRoll);
+        writeDoubles(out, samples, TelemetrySample::getAlignPitch);
+        writeDoubles(out, samples, TelemetrySample::getAlignYaw);
+        writeDoubles(out, samples, TelemetrySample::getLongitude);
+        writeDoubles(out, samples, TelemetrySample::getLatitude);
+        return out.toByteArray();
+    }
+
+    /**
+     * Reads the fixed header at the current position of the buffer without consuming it.
+     */
+    public static BlockHeader readHeader(ByteBuffer block) {
+        int start = block.position();
+        byte version = block.get(start);
+        if (version != VERSION) {
+            throw new IllegalStateException("Unsupported telemetry block version: " + version);
+        }
+        return new BlockHeader(block.getInt(start + 1), block.getLong(start + 5), block.getLong(start + 13));
+    }
+
+    /**
+     * Decodes a whole block starting at the current position of the buffer.
+     */
+    public static List<TelemetrySample> decode(ByteBuffer block) {
+        ByteBuffer in = block.duplicate();
+        BlockHeader header = readHeader(in);
+        in.position(in.position() + HEADER_BYTES);
+        int count = header.getCount();
+
+        int drone = (int) readVarint(in);
+        long[] timestamps = readDeltaOfDelta(in, count);
+        long[] lastSeen = readDeltaOfDelta(in, count);
+        int[] offsets = new int[count];
+        long previous = 0;
+        for (int i = 0; i < count; i++) {
+            previous += readSignedVarint(in);
+            offsets[i] = (int) previous;
+        }
+        int[] speeds = new int[count];
+        for (int i = 0; i < count; i++) {
+            speeds[i] = (int) readSignedVarint(in);
+        }
+        int[] batteries = new int[count];
+        for (int i = 0; i < count; i++) {
+            batteries[i] = (int) readSignedVarint(in);
+        }
+
+        String[] dictionary = new String[(int) readVarint(in)];
+        for (int i = 0; i < dictionary.length; i++) {
+            byte[] bytes = new byte[(int) readVarint(in)];
+            in.get(bytes);
+            dictionary[i] = new String(bytes, StandardCharsets.UTF_8);
+        }
+        String[] statuses = new String[count];
+        for (int i = 0; i < count; i++) {
+            statuses[i] = dictionary[(int) readVarint(in)];
+        }
+
+        double[] roll = readDoubles(in, count);
+        double[] pitch = readDoubles(in, count);
+        double[] yaw = readDoubles(in, count);
+        double[] longitude = readDoubles(in, count);
+        double[] latitude = readDoubles(in, count);
+
+        List<TelemetrySample> samples = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            samples.add(new TelemetrySample(drone, timestamps[i], lastSeen[i], offsets[i], speeds[i],
+                    roll[i], pitch[i], yaw[i], longitude[i], latitude[i], batteries[i], statuses[i]));
+        }
+        return samples;
+    }
+
+    private interface DoubleColumn {
+        double get(TelemetrySample sample);
+    }
+
+    private static void writeDoubles(ByteArrayOutputStream out, List<TelemetrySample> samples, DoubleColumn column) {
+        BitWriter bits = new BitWriter();
+        long previous = Double.doubleToRawLongBits(column.get(samples.get(0)));
+        bits.write(previous, 64);
+        int previousLeading = -1;
+        int previousTrailing = 0;
+        for (int i = 1; i < samples.size(); i++) {
+            long value = Double.doubleToRawLongBits(column.get(samples.get(i)));
+            long xor = value ^ previous;
+            previous = value;
+            if (xor == 0) {
+                bits.write(0, 1);
+                continue;
+            }
+            bits.write(1, 1);
+            int leading = Math.min(Long.numberOfLeadingZeros(xor), 31);
+            int trailing = Long.numberOfTrailingZeros(xor);
+            if (previousLeading >= 0 && leading >= previousLeading && trailing >= previousTrailing) {
+                // Meaningful bits fit into the previous window
+                bits.write(0, 1);
+                bits.write(xor >>> previousTrailing, 64 - previousLeading - previousTrailing);
+            } else {
+                int meaningful = 64 - leading - trailing;
+                bits.write(1, 1);
+                bits.write(leading, 5);
+                bits.write(meaningful - 1, 6);
+                bits.write(xor >>> trailing, meaningful);
+                previousLeading = leading;
+                previousTrailing = trailing;
+            }
+        }
+        byte[] encoded = bits.toByteArray();
+        writeVarint(out, encoded.length);
+        out.write(encoded, 0, encoded.length);
+    }
+
+    private static double[] readDoubles(ByteBuffer in, int count) {
+        int length = (int) readVarint(in);
+        ByteBuffer column = in.slice();
+        column.limit(length);
+        in.position(in.position() + length);
+
+        BitReader bits = new BitReader(column);
+        double[] values = new double[count];
+        long previous = bits.read(64);
+        values[0] = Double.longBitsToDouble(previous);
+        int leading = 0;
+        int trailing = 0;
+        for (int i = 1; i < count; i++) {
+            if (bits.read(1) != 0) {
+                if (bits.read(1) != 0) {
+                    leading = (int) bits.read(5);
+                    int meaningful = (int) bits.read(6) + 1;
+                    trailing = 64 - leading - meaningful;
+                }
+                previous ^= bits.read(64 - leading - trailing) << trailing;
+            }
+            values[i] = Double.longBitsToDouble(previous);
+        }
+        return values;
+    }
+
+    private static long[] readDeltaOfDelta(ByteBuffer in, int count) {
+        long[] values = new long[count];
+        long previous = 0;
+        long delta = 0;
+        for (int i = 0; i < count; i++) {
+            delta += readSignedVarint(in);
+            previous += delta;
+            values[i] = previous;
+        }
+        return values;
+    }
+
+    static void writeVarint(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    static void writeSignedVarint(ByteArrayOutputStream out, long value) {
+        writeVarint(out, (value << 1) ^ (value >> 63));
+    }
+
+    static long readVarint(ByteBuffer in) {
+        long value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+
+    static long readSignedVarint(ByteBuffer in) {
+        long raw = readVarint(in);
+        return (raw >>> 1) ^ -(raw & 1);
+    }
+
+    private static class BitWriter {
+        private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        private int current;
+        private int used;
+
+        void write(long value, int bitCount) {
+            for (int i = bitCount - 1; i >= 0; i--) {
+                current = (current << 1) | (int) ((value >>> i) & 1);
+                if (++used == 8) {
+                    out.write(current);
+                    current = 0;
+                    used = 0;
+                }
+            }
+        }
+
+        byte[] toByteArray() {
+            if (used > 0) {
+                out.write(current << (8 - used));
+                current = 0;
+                used = 0;
+            }
+            return out.toByteArray();
+        }
+    }
+
+    private static class BitReader {
+        private final ByteBuffer in;
+        private int current;
+        private int remaining;
+
+        BitReader(ByteBuffer in) {
+            this.in = in;
+        }
+
+        long read(int bitCount) {
+            long value = 0;
+            for (int i = 0; i < bitCount; i++) {
+                if (remaining == 0) {
+                    current = in.get() & 0xFF;
+                    remaining = 8;
+                }
+                remaining--;
+                value = (value << 1) | ((current >>> remaining) & 1);
+            }
+            return value;
+        }
+    }
+}
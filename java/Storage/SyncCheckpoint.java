@@ -0,0 +1,113 @@
+package Storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * The SyncCheckpoint records how far the fleet sync has got, so an interrupted sync continues
+ * where it stopped instead of starting over.
+ * <p>
+ * Per drone it keeps the offset of the next dynamics page to fetch and whether the drone has
+ * been mirrored completely; it also keeps the drone ids of the fleet. The checkpoint is a small
+ * properties file that is replaced atomically on every save, so a crash leaves either the old or
+ * the new state, never a torn one.
+ */
+public class SyncCheckpoint {
+    private static final String FLEET = "fleet";
+
+    private final Path file;
+    private final Properties state = new Properties();
+
+    private SyncCheckpoint(Path file) {
+        this.file = file;
+    }
+
+    /**
+     * Loads the checkpoint from the file, or starts an empty one if the file does not exist.
+     */
+    public static SyncCheckpoint load(Path file) throws IOException {
+        SyncCheckpoint checkpoint = new SyncCheckpoint(file);
+        if (Files.exists(file)) {
+            try (InputStream in = Files.newInputStream(file)) {
+                checkpoint.state.load(in);
+            }
+        }
+        return checkpoint;
+    }
+
+    /**
+     * Returns the offset of the next dynamics page to fetch for the drone, 0 if none was fetched.
+     */
+    public synchronized int getOffset(int drone) {
+        return Integer.parseInt(state.getProperty(offsetKey(drone), "0"));
+    }
+
+    public synchronized boolean isComplete(int drone) {
+        return Boolean.parseBoolean(state.getProperty(completeKey(drone), "false"));
+    }
+
+    /**
+     * Records that every record before the given offset has been stored.
+     */
+    public synchronized void advance(int drone, int offset) {
+        state.setProperty(offsetKey(drone), String.valueOf(offset));
+    }
+
+    /**
+     * Records that every record of the drone up to the given offset has been stored and that
+     * there was nothing beyond it.
+     */
+    public synchronized void markComplete(int drone, int offset) {
+        advance(drone, offset);
+        state.setProperty(completeKey(drone), "true");
+    }
+
+    public synchronized List<Integer> getFleet() {
+        List<Integer> drones = new ArrayList<>();
+        String fleet = state.getProperty(FLEET, "");
+        for (String id : fleet.split(",")) {
+            if (!id.isEmpty()) {
+                drones.add(Integer.parseInt(id));
+            }
+        }
+        return drones;
+    }
+
+    public synchronized void setFleet(List<Integer> drones) {
+        StringBuilder fleet = new StringBuilder();
+        for (Integer drone : drones) {
+            if (fleet.length() > 0) {
+                fleet.append(',');
+            }
+            fleet.append(drone);
+        }
+        state.setProperty(FLEET, fleet.toString());
+    }
+
+    /**
+     * Writes the checkpoint to a temporary file and moves it over the previous one.
+     */
+    public synchronized void save() throws IOException {
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (OutputStream out = Files.newOutputStream(tmp)) {
+            state.store(out, "Fleet sync checkpoint");
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static String offsetKey(int drone) {
+        return "drone." + drone + ".offset";
+    }
+
+    private static String completeKey(int drone) {
+        return "drone." + drone + ".complete";
+    }
+}
@@ -0,0 +1,179 @@
+package Storage;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The TelemetryReader gives random access to the telemetry log of one drone through a
+ * read-only memory mapping of the file, so history is never copied onto the heap as a whole.
+ * <p>
+ * Opening the reader only walks the fixed block headers to build a small table of block
+ * offsets, cumulative record counts and timestamp ranges. Blocks are decoded lazily when a
+ * record inside them is requested, and the most recently decoded block is kept.
+ * Seeking to record N is a binary search over that table; seeking to a timestamp is a binary
+ * search too as long as the blocks are in time order, which holds after compaction and for
+ * pages appended in the order the API returns them.
+ */
+public class TelemetryReader implements Closeable {
+    private final FileChannel channel;
+    private final MappedByteBuffer mapped;
+    private final int[] blockOffsets;
+    private final long[] firstRecords;
+    private final long[] minTimestamps;
+    private final long[] maxTimestamps;
+    private final long size;
+    private final boolean timeOrdered;
+
+    private int cachedBlock = -1;
+    private List<TelemetrySample> cachedSamples;
+
+    /**
+     * Maps the first {@code length} bytes of the log file. Bytes past length, e.g. a block
+     * that is being appended, are not visible to the reader.
+     */
+    TelemetryReader(Path logFile, long length) throws IOException {
+        if (length > Integer.MAX_VALUE) {
+            throw new IOException("Telemetry log too large to map: " + logFile);
+        }
+        channel = FileChannel.open(logFile, StandardOpenOption.READ);
+        mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+
+        List<Integer> offsets = new ArrayList<>();
+        List<DynamicsCodec.BlockHeader> headers = new ArrayList<>();
+        int position = 0;
+        while (position + Integer.BYTES + DynamicsCodec.HEADER_BYTES <= length) {
+            int blockLength = mapped.getInt(position);
+            if (blockLength < DynamicsCodec.HEADER_BYTES || position + Integer.BYTES + (long) blockLength > length) {
+                break;
+            }
+            offsets.add(position + Integer.BYTES);
+            headers.add(DynamicsCodec.readHeader(mapped.duplicate().position(position + Integer.BYTES)));
+            position += Integer.BYTES + blockLength;
+        }
+
+        int blocks = offsets.size();
+        blockOffsets = new int[blocks];
+        firstRecords = new long[blocks];
+        minTimestamps = new long[blocks];
+        maxTimestamps = new long[blocks];
+        long records = 0;
+        boolean ordered = true;
+        for (int i = 0; i < blocks; i++) {
+            DynamicsCodec.BlockHeader header = headers.get(i);
+            blockOffsets[i] = offsets.get(i);
+            firstRecords[i] = records;
+            minTimestamps[i] = header.getMinTimestamp();
+            maxTimestamps[i] = header.getMaxTimestamp();
+            records += header.getCount();
+            if (i > 0 && minTimestamps[i] < maxTimestamps[i - 1]) {
+                ordered = false;
+            }
+        }
+        size = records;
+        timeOrdered = ordered;
+    }
+
+    /**
+     * Returns the number of records visible to this reader.
+     */
+    public long size() {
+        return size;
+    }
+
+    /**
+     * Returns record number {@code index}, counted from the start of the log.
+     */
+    public synchronized TelemetrySample get(long index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Record " + index + " of " + size);
+        }
+        int block = blockOf(index);
+        return samples(block).get((int) (index - firstRecords[block]));
+    }
+
+    /**
+     * Returns the index of the first record whose timestamp is at or after the given time,
+     * or size() if there is none.
+     */
+    public synchronized long seek(long timestampMicros) {
+        for (int block = firstBlockEndingAfter(timestampMicros); block < blockOffsets.length; block++) {
+            if (maxTimestamps[block] < timestampMicros) {
+                continue;
+            }
+            List<TelemetrySample> samples = samples(block);
+            for (int i = 0; i < samples.size(); i++) {
+                if (samples.get(i).getTimestampMicros() >= timestampMicros) {
+                    return firstRecords[block] + i;
+                }
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Returns the records whose timestamp lies within [fromMicros, toMicros], decoding only
+     * the blocks that overlap the range.
+     */
+    public synchronized List<TelemetrySample> range(long fromMicros, long toMicros) {
+        List<TelemetrySample> result = new ArrayList<>();
+        for (int block = firstBlockEndingAfter(fromMicros); block < blockOffsets.length; block++) {
+            if (timeOrdered && minTimestamps[block] > toMicros) {
+                break;
+            }
+            if (maxTimestamps[block] < fromMicros || minTimestamps[block] > toMicros) {
+                continue;
+            }
+            for (TelemetrySample sample : samples(block)) {
+                if (sample.getTimestampMicros() >= fromMicros && sample.getTimestampMicros() <= toMicros) {
+                    result.add(sample);
+                }
+            }
+        }
+        return result;
+    }
+
+    private int blockOf(long index) {
+        int found = Arrays.binarySearch(firstRecords, index);
+        return found >= 0 ? found : -found - 2;
+    }
+
+    private int firstBlockEndingAfter(long timestampMicros) {
+        if (!timeOrdered) {
+            return 0;
+        }
+        int low = 0;
+        int high = maxTimestamps.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (maxTimestamps[middle] < timestampMicros) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private List<TelemetrySample> samples(int block) {
+        if (block != cachedBlock) {
+            ByteBuffer view = mapped.duplicate();
+            view.position(blockOffsets[block]);
+            cachedSamples = DynamicsCodec.decode(view);
+            cachedBlock = block;
+        }
+        return cachedSamples;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
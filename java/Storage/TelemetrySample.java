@@ -0,0 +1,153 @@
+package Storage;
+
+import org.json.JSONObject;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAccessor;
+
+/**
+ * The TelemetrySample is one persisted dynamics record of a drone.
+ * <p>
+ * Timestamps are kept as microseconds since the epoch together with the UTC offset
+ * the API reported them in, so the original ISO string can be rebuilt exactly.
+ * The battery value is the raw battery_status (current power) of the record.
+ */
+public class TelemetrySample {
+    private static final DateTimeFormatter ISO_MICROS = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSSSSSxxx");
+
+    private final int drone;
+    private final long timestampMicros;
+    private final long lastSeenMicros;
+    private final int offsetSeconds;
+    private final int speed;
+    private final double alignRoll;
+    private final double alignPitch;
+    private final double alignYaw;
+    private final double longitude;
+    private final double latitude;
+    private final int batteryStatus;
+    private final String status;
+
+    public TelemetrySample(int drone, long timestampMicros, long lastSeenMicros, int offsetSeconds, int speed,
+                           double alignRoll, double alignPitch, double alignYaw, double longitude, double latitude,
+                           int batteryStatus, String status) {
+        this.drone = drone;
+        this.timestampMicros = timestampMicros;
+        this.lastSeenMicros = lastSeenMicros;
+        this.offsetSeconds = offsetSeconds;
+        this.speed = speed;
+        this.alignRoll = alignRoll;
+        this.alignPitch = alignPitch;
+        this.alignYaw = alignYaw;
+        this.longitude = longitude;
+        this.latitude = latitude;
+        this.batteryStatus = batteryStatus;
+        this.status = status;
+    }
+
+    /**
+     * Builds a sample from one element of the "results" array of /api/{n}/dynamics/.
+     */
+    public static TelemetrySample fromJson(JSONObject record) {
+        OffsetDateTime timestamp = parseIso(record.getString("timestamp"));
+        String[] droneUrl = record.getString("drone").split("/");
+        return new TelemetrySample(
+                Integer.parseInt(droneUrl[droneUrl.length - 1]),
+                toMicros(timestamp),
+                toMicros(parseIso(record.getString("last_seen"))),
+                timestamp.getOffset().getTotalSeconds(),
+                record.getInt("speed"),
+                record.getDouble("align_roll"),
+                record.getDouble("align_pitch"),
+                record.getDouble("align_yaw"),
+                record.getDouble("longitude"),
+                record.getDouble("latitude"),
+                record.getInt("battery_status"),
+                record.getString("status"));
+    }
+
+    /**
+     * Parses an ISO timestamp such as "2024-01-10T17:33:08.409133+01:00". A timestamp without
+     * offset is taken as UTC. Every timestamp of the API is read through here.
+     */
+    public static OffsetDateTime parseIso(String iso) {
+        TemporalAccessor parsed = DateTimeFormatter.ISO_DATE_TIME.parseBest(iso, OffsetDateTime::from, LocalDateTime::from);
+        if (parsed instanceof OffsetDateTime) {
+            return (OffsetDateTime) parsed;
+        }
+        return ((LocalDateTime) parsed).atOffset(ZoneOffset.UTC);
+    }
+
+    public static long toMicros(OffsetDateTime dateTime) {
+        return ChronoUnit.MICROS.between(Instant.EPOCH, dateTime.toInstant());
+    }
+
+    /**
+     * Formats epoch microseconds as an ISO string with the given offset, as the API does.
+     */
+    public static String toIso(long epochMicros, int offsetSeconds) {
+        Instant instant = Instant.EPOCH.plus(epochMicros, ChronoUnit.MICROS);
+        return OffsetDateTime.ofInstant(instant, ZoneOffset.ofTotalSeconds(offsetSeconds)).format(ISO_MICROS);
+    }
+
+    public int getDrone() {
+        return drone;
+    }
+
+    public long getTimestampMicros() {
+        return timestampMicros;
+    }
+
+    public long getLastSeenMicros() {
+        return lastSeenMicros;
+    }
+
+    public int getOffsetSeconds() {
+        return offsetSeconds;
+    }
+
+    public String getTimestamp() {
+        return toIso(timestampMicros, offsetSeconds);
+    }
+
+    public String getLastSeen() {
+        return toIso(lastSeenMicros, offsetSeconds);
+    }
+
+    public int getSpeed() {
+        return speed;
+    }
+
+    public double getAlignRoll() {
+        return alignRoll;
+    }
+
+    public double getAlignPitch() {
+        return alignPitch;
+    }
+
+    public double getAlignYaw() {
+        return alignYaw;
+    }
+
+    public double getLongitude() {
+        return longitude;
+    }
+
+    public double getLatitude() {
+        return latitude;
+    }
+
+    public int getBatteryStatus() {
+        return batteryStatus;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+}
@@ -0,0 +1,410 @@
+package Storage;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.DateTimeException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * The TelemetryStore persists the dynamics records fetched from the API in one append-only
+ * log per drone.
+ * <p>
+ * Files per drone, inside the store directory:
+ * - {@code <drone>.tsdb}: a sequence of length-prefixed blocks, only ever appended to. Every block
+ *   is a columnar DynamicsCodec block holding the new samples of one append. Compaction writes the
+ *   next generation as {@code <drone>.<generation>.tsdb} instead of rewriting the file in place.
+ * - {@code <drone>.tsdb.idx}: the persistent dedupe index, one entry (log size after the block,
+ *   last_seen of every sample in it) per block. It is loaded into a hash set on first use, so checking
+ *   whether a record is already stored costs O(1) no matter how much history has built up.
+ * <p>
+ * Appending a page therefore only writes the new records, instead of reading, parsing and
+ * rewriting the whole history. Every {@code compactionThreshold} appended records the log is
+ * compacted: samples are sorted by timestamp, duplicates and torn writes are dropped, the many
+ * small page blocks are merged into large blocks that compress better, and the index is rebuilt.
+ * A compacted log never replaces a file a TelemetryReader may have mapped: readers opened before
+ * keep the old generation, which is deleted once nothing holds it, at the latest on the next open.
+ * <p>
+ * A {@code <drone>.json} history left next to the store directory by earlier versions is imported
+ * into the log the first time the drone is opened.
+ */
+public class TelemetryStore {
+    private static final String LOG_SUFFIX = ".tsdb";
+    private static final String INDEX_SUFFIX = ".tsdb.idx";
+    private static final String LEGACY_SUFFIX = ".json";
+    private static final int BLOCK_SAMPLES = 1024;
+    private static final TelemetryStore shared = new TelemetryStore(Paths.get("telemetry"));
+
+    private final Path directory;
+    private final Map<Integer, DroneLog> logs = new HashMap<>();
+    private int compactionThreshold = 5000;
+
+    private static class DroneLog {
+        final Path indexFile;
+        final Set<Long> keys = new HashSet<>();
+        Path logFile;
+        int generation;
+        long logSize;
+        int appendsSinceCompaction;
+
+        DroneLog(Path logFile, int generation, Path indexFile) {
+            this.logFile = logFile;
+            this.generation = generation;
+            this.indexFile = indexFile;
+        }
+    }
+
+    public TelemetryStore(Path directory) {
+        this.directory = directory;
+    }
+
+    public static TelemetryStore getInstance() {
+        return shared;
+    }
+
+    public synchronized void setCompactionThreshold(int records) {
+        this.compactionThreshold = records;
+    }
+
+    /**
+     * Appends the records of one page as returned in "results" of /api/{n}/dynamics/.
+     *
+     * @see #append(int, List)
+     */
+    public int append(int drone, JSONArray records) throws IOException {
+        List<TelemetrySample> samples = new ArrayList<>(records.length());
+        for (int i = 0; i < records.length(); i++) {
+            samples.add(TelemetrySample.fromJson(records.getJSONObject(i)));
+        }
+        return append(drone, samples);
+    }
+
+    /**
+     * Appends samples to the log of the given drone, skipping every sample whose last_seen
+     * is already stored.
+     *
+     * @param drone   the drone number the samples belong to
+     * @param samples the samples to store
+     * @return the number of samples that were new
+     */
+    public synchronized int append(int drone, List<TelemetrySample> samples) throws IOException {
+        DroneLog log = open(drone);
+        Map<Long, TelemetrySample> fresh = new LinkedHashMap<>();
+        for (TelemetrySample sample : samples) {
+            if (!log.keys.contains(sample.getLastSeenMicros())) {
+                fresh.putIfAbsent(sample.getLastSeenMicros(), sample);
+            }
+        }
+        if (fresh.isEmpty()) {
+            return 0;
+        }
+
+        byte[] block = DynamicsCodec.encode(new ArrayList<>(fresh.values()));
+        // The log is written first; a crash before the index is written is repaired on the next open
+        try (DataOutputStream out = appendStream(log.logFile)) {
+            out.writeInt(block.length);
+            out.write(block);
+        }
+        long end = log.logSize + Integer.BYTES + block.length;
+        try (DataOutputStream out = appendStream(log.indexFile)) {
+            writeIndexEntry(out, end, fresh.keySet());
+        }
+        log.logSize = end;
+        log.keys.addAll(fresh.keySet());
+
+        log.appendsSinceCompaction += fresh.size();
+        if (log.appendsSinceCompaction >= compactionThreshold) {
+            compact(drone);
+        }
+        return fresh.size();
+    }
+
+    /**
+     * Returns true if a record with this last_seen is already stored for the drone.
+     */
+    public synchronized boolean contains(int drone, long lastSeenMicros) throws IOException {
+        return open(drone).keys.contains(lastSeenMicros);
+    }
+
+    /**
+     * Returns the number of records stored for the drone.
+     */
+    public synchronized int size(int drone) throws IOException {
+        return open(drone).keys.size();
+    }
+
+    /**
+     * Reads every stored sample of the drone in log order.
+     */
+    public synchronized List<TelemetrySample> readAll(int drone) throws IOException {
+        return readRange(drone, Long.MIN_VALUE, Long.MAX_VALUE);
+    }
+
+    /**
+     * Reads the samples of the drone whose timestamp lies within [fromMicros, toMicros].
+     * Blocks entirely outside the range are skipped without being decoded.
+     */
+    public synchronized List<TelemetrySample> readRange(int drone, long fromMicros, long toMicros) throws IOException {
+        try (TelemetryReader reader = openReader(drone)) {
+            return reader.range(fromMicros, toMicros);
+        }
+    }
+
+    /**
+     * Reads up to {@code limit} samples of the drone starting at the given position in log order.
+     * Once a drone is compacted and only newer records are appended, log order is timestamp order.
+     */
+    public synchronized List<TelemetrySample> readPage(int drone, int offset, int limit) throws IOException {
+        try (TelemetryReader reader = openReader(drone)) {
+            List<TelemetrySample> page = new ArrayList<>(limit);
+            for (long i = offset; i < Math.min(reader.size(), (long) offset + limit); i++) {
+                page.add(reader.get(i));
+            }
+            return page;
+        }
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Opens a memory-mapped reader over everything stored for the drone so far.
+     * Samples appended later are not visible to it; the caller must close it.
+     */
+    public synchronized TelemetryReader openReader(int drone) throws IOException {
+        DroneLog log = open(drone);
+        if (!Files.exists(log.logFile)) {
+            Files.createFile(log.logFile);
+        }
+        return new TelemetryReader(log.logFile, log.logSize);
+    }
+
+    /**
+     * Rewrites the log of the drone sorted by timestamp without duplicates, in large blocks,
+     * and rebuilds its index.
+     */
+    public synchronized void compact(int drone) throws IOException {
+        DroneLog log = open(drone);
+        Map<Long, TelemetrySample> unique = new HashMap<>();
+        scan(log.logFile, block -> {
+            for (TelemetrySample sample : DynamicsCodec.decode(ByteBuffer.wrap(block))) {
+                unique.putIfAbsent(sample.getLastSeenMicros(), sample);
+            }
+        });
+        List<TelemetrySample> samples = new ArrayList<>(unique.values());
+        samples.sort(Comparator.comparingLong(TelemetrySample::getTimestampMicros));
+
+        Path nextLogFile = logFile(drone, log.generation + 1);
+        Path logTmp = nextLogFile.resolveSibling(nextLogFile.getFileName() + ".tmp");
+        Path indexTmp = log.indexFile.resolveSibling(log.indexFile.getFileName() + ".tmp");
+        long position = 0;
+        try (DataOutputStream logOut = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(logTmp)));
+             DataOutputStream indexOut = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(indexTmp)))) {
+            for (int from = 0; from < samples.size(); from += BLOCK_SAMPLES) {
+                List<TelemetrySample> chunk = samples.subList(from, Math.min(from + BLOCK_SAMPLES, samples.size()));
+                byte[] block = DynamicsCodec.encode(chunk);
+                logOut.writeInt(block.length);
+                logOut.write(block);
+                position += Integer.BYTES + block.length;
+
+                Set<Long> keys = new HashSet<>();
+                for (TelemetrySample sample : chunk) {
+                    keys.add(sample.getLastSeenMicros());
+                }
+                writeIndexEntry(indexOut, position, keys);
+            }
+        }
+        // The new generation gets a name of its own, the old file may still be mapped by a reader
+        Files.move(logTmp, nextLogFile, StandardCopyOption.ATOMIC_MOVE);
+        Files.move(indexTmp, log.indexFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        Path oldLogFile = log.logFile;
+        log.logFile = nextLogFile;
+        log.generation++;
+        deleteIfUnused(oldLogFile);
+
+        log.keys.clear();
+        log.keys.addAll(unique.keySet());
+        log.logSize = position;
+        log.appendsSinceCompaction = 0;
+    }
+
+    private DroneLog open(int drone) throws IOException {
+        DroneLog log = logs.get(drone);
+        if (log != null) {
+            return log;
+        }
+        Files.createDirectories(directory);
+        int generation = latestGeneration(drone);
+        log = new DroneLog(logFile(drone, generation), generation, directory.resolve(drone + INDEX_SUFFIX));
+        for (int older = 0; older < generation; older++) {
+            // Left behind by a compaction while a reader still held them
+            deleteIfUnused(logFile(drone, older));
+        }
+        long logSize = Files.exists(log.logFile) ? Files.size(log.logFile) : 0;
+
+        long indexedEnd = loadIndex(log);
+        log.logSize = logSize;
+        logs.put(drone, log);
+        if (indexedEnd != logSize) {
+            // A crash left the log and its index out of step, rebuild both from the complete blocks
+            compact(drone);
+        }
+        importLegacyHistory(drone);
+        return log;
+    }
+
+    /**
+     * Imports the {@code <drone>.json} history written by earlier versions next to the store
+     * directory, then renames it to {@code <drone>.json.imported} so it is only read once.
+     * Records already in the log are skipped like on every append, records that cannot be
+     * parsed are dropped.
+     */
+    private void importLegacyHistory(int drone) throws IOException {
+        Path legacyFile = directory.resolveSibling(drone + LEGACY_SUFFIX);
+        if (!Files.isRegularFile(legacyFile)) {
+            return;
+        }
+        JSONArray records;
+        try {
+            records = new JSONArray(Files.readString(legacyFile));
+        } catch (JSONException e) {
+            throw new IOException("Unreadable legacy history " + legacyFile, e);
+        }
+        List<TelemetrySample> samples = new ArrayList<>(records.length());
+        for (int i = 0; i < records.length(); i++) {
+            try {
+                samples.add(TelemetrySample.fromJson(records.getJSONObject(i)));
+            } catch (JSONException | DateTimeException | NumberFormatException e) {
+                // not a dynamics record, nothing to keep
+            }
+        }
+        append(drone, samples);
+        Files.move(legacyFile, legacyFile.resolveSibling(drone + LEGACY_SUFFIX + ".imported"), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private Path logFile(int drone, int generation) {
+        return directory.resolve(generation == 0 ? drone + LOG_SUFFIX : drone + "." + generation + LOG_SUFFIX);
+    }
+
+    /**
+     * Returns the newest generation of the drone's log on disk, 0 if it was never compacted.
+     */
+    private int latestGeneration(int drone) throws IOException {
+        Pattern name = Pattern.compile(drone + "\\.(\\d+)" + Pattern.quote(LOG_SUFFIX));
+        int latest = 0;
+        try (var files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Matcher matcher = name.matcher(file.getFileName().toString());
+                if (matcher.matches()) {
+                    latest = Math.max(latest, Integer.parseInt(matcher.group(1)));
+                }
+            }
+        }
+        return latest;
+    }
+
+    private static void deleteIfUnused(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            // Still mapped by a reader on a platform that refuses to delete it, retried on the next open
+        }
+    }
+
+    private long loadIndex(DroneLog log) throws IOException {
+        if (!Files.exists(log.indexFile)) {
+            return 0;
+        }
+        long end = 0;
+        long remaining = Files.size(log.indexFile);
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(log.indexFile)))) {
+            while (true) {
+                long entryEnd = in.readLong();
+                int count = in.readInt();
+                remaining -= Long.BYTES + Integer.BYTES;
+                if (count < 0 || count > remaining / Long.BYTES) {
+                    // a torn count, the entry cannot be complete
+                    break;
+                }
+                remaining -= (long) count * Long.BYTES;
+                List<Long> keys = new ArrayList<>(count);
+                for (int i = 0; i < count; i++) {
+                    keys.add(in.readLong());
+                }
+                log.keys.addAll(keys);
+                end = entryEnd;
+            }
+        } catch (EOFException e) {
+            // end of index reached, a torn last entry is simply ignored
+        }
+        return end;
+    }
+
+    private static void writeIndexEntry(DataOutputStream out, long blockEnd, Set<Long> keys) throws IOException {
+        out.writeLong(blockEnd);
+        out.writeInt(keys.size());
+        for (long key : keys) {
+            out.writeLong(key);
+        }
+    }
+
+    private interface BlockVisitor {
+        void visit(byte[] block) throws IOException;
+    }
+
+    /**
+     * Visits every complete block of the log.
+     *
+     * @return the offset after the last complete block
+     */
+    private static long scan(Path logFile, BlockVisitor visitor) throws IOException {
+        if (!Files.exists(logFile)) {
+            return 0;
+        }
+        long position = 0;
+        long size = Files.size(logFile);
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(logFile)))) {
+            while (true) {
+                int length = in.readInt();
+                if (length < 0 || length > size - position - Integer.BYTES) {
+                    // a torn length prefix, never allocate what the file cannot hold
+                    break;
+                }
+                byte[] block = new byte[length];
+                in.readFully(block);
+                position += Integer.BYTES + length;
+                visitor.visit(block);
+            }
+        } catch (EOFException e) {
+            // end of log reached, anything after position is a torn write
+        }
+        return position;
+    }
+
+    private static DataOutputStream appendStream(Path file) throws IOException {
+        return new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)));
+    }
+}
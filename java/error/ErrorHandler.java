@@ -1,11 +1,16 @@
 package error;
 
+import API.CircuitBreaker;
 import javafx.application.Platform;
 import javafx.scene.control.Alert;
 import javafx.scene.control.Alert.AlertType;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionException;
 
 /**
  * ErrorHandler class for handling exceptions and displaying error messages to the user.
@@ -13,6 +18,11 @@ import java.io.IOException;
 public class ErrorHandler {
 
     private static final Logger logger = LogManager.getLogger(ErrorHandler.class);
+    private static final long POPUP_QUIET_NANOS = 10_000_000_000L;
+
+    // Only touched on the JavaFX Application Thread
+    private static final Map<String, Long> lastPopupAt = new HashMap<>();
+    private static boolean popupOpen;
 
     /**
      * Handles IOException by logging the error and displaying an error message.
@@ -35,16 +45,31 @@ public class ErrorHandler {
 
     /**
      * Shows a simplified error popup with the specified title and message.
+     * At most one popup is open at a time, and the same popup is not shown again within ten
+     * seconds; suppressed popups are only logged, so a failing upstream cannot bury the user.
      *
      * @param title   the title of the error popup
      * @param message the message of the error popup
      */
     public static void showErrorPopup(String title, String message) {
         Platform.runLater(() -> {
-            Alert alert = new Alert(AlertType.ERROR);
-            alert.setTitle(title);
-            alert.setHeaderText(message);
-            alert.showAndWait();
+            String key = title + "\n" + message;
+            long now = System.nanoTime();
+            Long last = lastPopupAt.get(key);
+            if (popupOpen || (last != null && now - last < POPUP_QUIET_NANOS)) {
+                logger.warn("Suppressed error popup: {}: {}", title, message);
+                return;
+            }
+            lastPopupAt.put(key, now);
+            popupOpen = true;
+            try {
+                Alert alert = new Alert(AlertType.ERROR);
+                alert.setTitle(title);
+                alert.setHeaderText(message);
+                alert.showAndWait();
+            } finally {
+                popupOpen = false;
+            }
         });
     }
 
@@ -57,4 +82,23 @@ public class ErrorHandler {
         logError(e);
         showErrorPopup("Error", "An unexpected error occurred.");
     }
+
+    /**
+     * Handles the failure of an asynchronous task, unwrapping the CompletionException around it.
+     * Cancellations are expected and ignored.
+     *
+     * @param e the Throwable the task completed with
+     */
+    public static void handleAsyncException(Throwable e) {
+        Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+        if (cause instanceof CancellationException) {
+            return;
+        }
+        if (cause instanceof CircuitBreaker.OpenException) {
+            logError((Exception) cause);
+            showErrorPopup("Server unavailable", "The drone server is not responding, please try again later.");
+            return;
+        }
+        handleException(cause instanceof Exception ? (Exception) cause : new RuntimeException(cause));
+    }
 }
@@ -0,0 +1,112 @@
+package gui;
+
+import API.RequestGovernor;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The DroneMetadataRepository resolves a drone URL, as referenced by a dynamics record,
+ * to the static facts needed to display that record: the drone id, its dronetype URL
+ * and the battery capacity of that type.
+ * <p>
+ * The id is parsed straight from the URL. The dronetype is loaded once per drone and
+ * memoized, since a drone never changes its type; the battery capacity comes from the
+ * shared DroneTypeCache. After the first lookup of a drone no further request is made,
+ * and battery percentages are computed locally.
+ * <p>
+ * Lookups made for a prefetch, the live monitor or the fleet sync pass their priority, so the
+ * requests they trigger queue with the background work instead of the pages on screen.
+ */
+public class DroneMetadataRepository {
+    private static final DroneMetadataRepository shared = new DroneMetadataRepository();
+
+    private final Map<Integer, DroneMetadata> metadataById = new ConcurrentHashMap<>();
+
+    public static DroneMetadataRepository getInstance() {
+        return shared;
+    }
+
+    /**
+     * Static description of one drone.
+     */
+    public record DroneMetadata(int id, String dronetypeUrl, int batteryCapacity) {
+
+        /**
+         * Converts the current power reported by a dynamics record into a percentage.
+         */
+        public int batteryPercentage(int power) {
+            if (batteryCapacity == 0) {
+                // Handle division by zero or invalid battery capacity appropriately
+                return 0;
+            }
+            float batteryPercentage = ((float) power * 100 / batteryCapacity);
+            return Math.round(batteryPercentage);
+        }
+    }
+
+    /**
+     * Resolves the metadata of the drone behind the given URL, e.g. "http://.../api/drones/71/".
+     *
+     * @throws IOException if the drone is not known yet and loading it fails
+     */
+    public DroneMetadata get(String droneUrl) throws IOException {
+        return get(droneId(droneUrl));
+    }
+
+    public DroneMetadata get(String droneUrl, RequestGovernor.Priority priority) throws IOException {
+        return get(droneId(droneUrl), priority);
+    }
+
+    /**
+     * Resolves the metadata of the drone with the given id.
+     *
+     * @throws IOException if the drone is not known yet and loading it fails
+     */
+    public DroneMetadata get(int id) throws IOException {
+        return get(id, RequestGovernor.Priority.INTERACTIVE);
+    }
+
+    /**
+     * Same as get, with any request admitted at the priority of the caller.
+     */
+    public DroneMetadata get(int id, RequestGovernor.Priority priority) throws IOException {
+        DroneMetadata metadata = metadataById.get(id);
+        if (metadata != null) {
+            return metadata;
+        }
+        String response = DroneApp.fetchDataFromApi("/api/drones/" + id + "/", priority);
+        String dronetypeUrl = new JSONObject(response).getString("dronetype");
+        int batteryCapacity = DroneTypeCache.getInstance().get(dronetypeUrl, priority).batteryCapacity();
+        metadata = new DroneMetadata(id, dronetypeUrl, batteryCapacity);
+        metadataById.put(id, metadata);
+        return metadata;
+    }
+
+    /**
+     * Stores the metadata of a drone whose document was already loaded, e.g. by a listing of
+     * /api/drones/, so that no request per drone is needed later.
+     *
+     * @throws IOException if the drone type is not cached yet and loading it fails
+     */
+    public DroneMetadata put(int id, String dronetypeUrl, RequestGovernor.Priority priority) throws IOException {
+        int batteryCapacity = DroneTypeCache.getInstance().get(dronetypeUrl, priority).batteryCapacity();
+        DroneMetadata metadata = new DroneMetadata(id, dronetypeUrl, batteryCapacity);
+        metadataById.put(id, metadata);
+        return metadata;
+    }
+
+    public void clear() {
+        metadataById.clear();
+    }
+
+    /**
+     * Extracts the numeric id from a drone URL without any request.
+     */
+    public static int droneId(String droneUrl) {
+        String[] urlParts = droneUrl.split("/");
+        return Integer.parseInt(urlParts[urlParts.length - 1]);
+    }
+}
@@ -19,7 +19,6 @@ import javafx.stage.Stage;
 import java.io.IOException;
 import java.io.InputStream;
 
-import static Animation.LoadingTask.showLoadingPopup;
 
 /**
  * The DroneSimulatorGUI class implements a JavaFX application for managing and interacting
@@ -105,7 +104,6 @@ public class DroneSimulatorGUI extends Application {
 
         Button btnRefresh = createToolbarButton("Refresh", "/image/refresh.png");
         btnRefresh.setOnAction(e -> {
-            showLoadingPopup();
             primaryStage.centerOnScreen();
             showMenu(primaryStage);
         });
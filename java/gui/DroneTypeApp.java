@@ -1,7 +1,6 @@
 package gui;
 
-import javafx.beans.property.SimpleIntegerProperty;
-import javafx.beans.property.SimpleStringProperty;
+import org.json.JSONObject;
 
 public class DroneTypeApp  {
 
@@ -10,65 +9,30 @@ public class DroneTypeApp  {
      * It encapsulates attributes such as ID, manufacturer, typename, weight, max speed,
      * battery capacity, control range, and max carriage weight.
      * <p>
-     * This class is intended to be used as a data structure to hold information about different
-     * types of drones. It provides getter methods for accessing these properties.
+     * This record is intended to be used as a data structure to hold information about different
+     * types of drones. Its fields are plain immutable values.
      * <p>
-     * Note: Instances of DroneType are intended to be used in conjunction with JavaFX's
-     * TableView or other UI components that require observable properties (SimpleIntegerProperty,
-     * SimpleStringProperty) for dynamic updates and bindings.
+     * Note: TableView reads DroneType through RowProperties, which creates observable values
+     * only for the cells that are actually displayed.
      */
 
-    public static class DroneType {
-        private final SimpleIntegerProperty id;
-        private final SimpleStringProperty manufacturer;
-        private final SimpleStringProperty typename;
-        private final SimpleIntegerProperty weight;
-        private final SimpleIntegerProperty maxSpeed;
-        private final SimpleIntegerProperty batteryCapacity;
-        private final SimpleIntegerProperty controlRange;
-        private final SimpleIntegerProperty maxCarriage;
-
-        public DroneType(int id, String manufacturer, String typename, int weight, int maxSpeed, int batteryCapacity, int controlRange, int maxCarriage) {
-            this.id = new SimpleIntegerProperty(id);
-            this.manufacturer = new SimpleStringProperty(manufacturer);
-            this.typename = new SimpleStringProperty(typename);
-            this.weight = new SimpleIntegerProperty(weight);
-            this.maxSpeed =new SimpleIntegerProperty(maxSpeed) ;
-            this.batteryCapacity =new SimpleIntegerProperty(batteryCapacity) ;
-            this.controlRange =new SimpleIntegerProperty (controlRange);
-            this.maxCarriage = new SimpleIntegerProperty (maxCarriage);
-        }
-
-        public int getId() {
-            return id.get();
-        }
-
-        public String getManufacturer() {
-            return manufacturer.get();
-        }
-
-        public String getTypename() {
-            return typename.get();
-        }
-
-        public int getWeight() {
-            return weight.get();
-        }
-
-        public int getMaxSpeed() {
-            return maxSpeed.get();
-        }
-
-        public int getBatteryCapacity() {
-            return batteryCapacity.get();
-        }
-
-        public int getControlRange() {
-            return controlRange.get();
-        }
-
-        public int getMaxCarriage() {
-            return maxCarriage.get();
+    public record DroneType(int id, String manufacturer, String typename, int weight, int maxSpeed,
+                            int batteryCapacity, int controlRange, int maxCarriage) {
+
+        /**
+         * Builds a DroneType from one dronetype document of the API.
+         */
+        public static DroneType fromJson(JSONObject drone) {
+            return new DroneType(
+                    drone.getInt("id"),
+                    drone.getString("manufacturer"),
+                    drone.getString("typename"),
+                    drone.getInt("weight"),
+                    drone.getInt("max_speed"),
+                    drone.getInt("battery_capacity"),
+                    drone.getInt("control_range"),
+                    drone.getInt("max_carriage")
+            );
         }
     }
 }
@@ -0,0 +1,143 @@
+package gui;
+
+import API.RequestGovernor;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The DroneTypeCache keeps the drone types of the API in memory so that typename,
+ * manufacturer and battery capacity can be resolved without a request per table row.
+ * <p>
+ * Entries expire after a configurable time to live and the cache holds at most a
+ * configurable number of types, evicting the least recently used one when full.
+ * On the first miss the whole type catalogue is loaded with a single request, because
+ * there are only a few types and most pages reference several of them.
+ * <p>
+ * One shared instance is used by DroneApp, DroneDynamicsApp and ShowCatalogue.
+ */
+public class DroneTypeCache {
+    private static final int CATALOGUE_LIMIT = 100;
+    private static final DroneTypeCache shared = new DroneTypeCache(Duration.ofMinutes(30), 64);
+
+    private final Map<Integer, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long ttlNanos;
+    private int maxEntries;
+    private long catalogueExpiresAt;
+
+    private static class Entry {
+        final DroneTypeApp.DroneType type;
+        final long expiresAt;
+
+        Entry(DroneTypeApp.DroneType type, long expiresAt) {
+            this.type = type;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    public DroneTypeCache(Duration ttl, int maxEntries) {
+        configure(ttl, maxEntries);
+    }
+
+    public static DroneTypeCache getInstance() {
+        return shared;
+    }
+
+    /**
+     * Changes the time to live and the maximum number of cached types.
+     */
+    public synchronized void configure(Duration ttl, int maxEntries) {
+        this.ttlNanos = ttl.toNanos();
+        this.maxEntries = maxEntries;
+        trim();
+    }
+
+    /**
+     * Resolves a drone type from its URL, e.g. "http://.../api/dronetypes/73/".
+     *
+     * @param dronetypeUrl the dronetype URL as found in a drone document
+     * @return the cached or freshly loaded drone type
+     * @throws IOException if the type has to be loaded and the request fails
+     */
+    public DroneTypeApp.DroneType get(String dronetypeUrl) throws IOException {
+        return get(dronetypeUrl, RequestGovernor.Priority.INTERACTIVE);
+    }
+
+    /**
+     * Same as get, with any request admitted at the priority of the caller.
+     */
+    public DroneTypeApp.DroneType get(String dronetypeUrl, RequestGovernor.Priority priority) throws IOException {
+        int id = typeId(dronetypeUrl);
+        DroneTypeApp.DroneType type = lookup(id);
+        if (type != null) {
+            return type;
+        }
+        if (shouldLoadCatalogue()) {
+            loadCatalogue(priority);
+            type = lookup(id);
+            if (type != null) {
+                return type;
+            }
+        }
+        String response = DroneApp.fetchDataFromApi("/api/dronetypes/" + id + "/", priority);
+        type = DroneTypeApp.DroneType.fromJson(new JSONObject(response));
+        put(type);
+        return type;
+    }
+
+    public synchronized void put(DroneTypeApp.DroneType type) {
+        entries.put(type.id(), new Entry(type, System.nanoTime() + ttlNanos));
+        trim();
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        catalogueExpiresAt = 0;
+    }
+
+    /**
+     * Extracts the numeric id from a dronetype URL.
+     */
+    static int typeId(String dronetypeUrl) {
+        String[] urlParts = dronetypeUrl.split("/");
+        return Integer.parseInt(urlParts[urlParts.length - 1]);
+    }
+
+    private synchronized DroneTypeApp.DroneType lookup(int id) {
+        Entry entry = entries.get(id);
+        if (entry == null) {
+            return null;
+        }
+        if (System.nanoTime() - entry.expiresAt > 0) {
+            entries.remove(id);
+            return null;
+        }
+        return entry.type;
+    }
+
+    private synchronized boolean shouldLoadCatalogue() {
+        return catalogueExpiresAt == 0 || System.nanoTime() - catalogueExpiresAt > 0;
+    }
+
+    private void loadCatalogue(RequestGovernor.Priority priority) throws IOException {
+        String response = DroneApp.fetchDataFromApi("/api/dronetypes/?limit=" + CATALOGUE_LIMIT, priority);
+        JSONArray types = new JSONObject(response).getJSONArray("results");
+        synchronized (this) {
+            for (int i = 0; i < types.length(); i++) {
+                put(DroneTypeApp.DroneType.fromJson(types.getJSONObject(i)));
+            }
+            catalogueExpiresAt = System.nanoTime() + ttlNanos;
+        }
+    }
+
+    private void trim() {
+        while (entries.size() > maxEntries) {
+            Integer eldest = entries.keySet().iterator().next();
+            entries.remove(eldest);
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package gui;
+
+import API.FetchEpoch;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The FanOutExecutor runs a blocking per-row task for every row of a page in parallel
+ * and hands back the results in page order.
+ * <p>
+ * Work runs on a dedicated pool of daemon threads rather than the ForkJoin common pool,
+ * so rows waiting on the network never starve other asynchronous work. At most
+ * {@code concurrency} rows of one page are processed at the same time; the page is
+ * complete when the slowest row is, instead of after the sum of all rows.
+ */
+public class FanOutExecutor {
+    private static final AtomicInteger threadCount = new AtomicInteger();
+    private static final ExecutorService executor = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "drone-fanout-" + threadCount.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    });
+    private static volatile int concurrency = 10;
+
+    /**
+     * A per-row task that may block on I/O.
+     */
+    public interface RowTask<T, R> {
+        R apply(T row) throws IOException;
+    }
+
+    /**
+     * Sets the maximum number of rows of one page that are processed at the same time.
+     */
+    public static void setConcurrency(int maxConcurrency) {
+        if (maxConcurrency < 1) {
+            throw new IllegalArgumentException("Concurrency must be at least 1: " + maxConcurrency);
+        }
+        concurrency = maxConcurrency;
+    }
+
+    public static int getConcurrency() {
+        return concurrency;
+    }
+
+    /**
+     * Returns the pool the rows run on, for other blocking work of the views that must stay
+     * off the FX thread and out of the common pool, such as reads of the local store.
+     */
+    static Executor executor() {
+        return executor;
+    }
+
+    /**
+     * Applies the task to every row with the configured concurrency limit.
+     *
+     * @return a future with one result per row, in the order of the input list
+     */
+    public static <T, R> CompletableFuture<List<R>> mapOrdered(List<T> rows, RowTask<T, R> task) {
+        return mapOrdered(rows, task, concurrency);
+    }
+
+    /**
+     * Applies the task to every row with at most {@code maxConcurrency} rows in flight.
+     * The returned future fails with the first error raised by any row.
+     */
+    public static <T, R> CompletableFuture<List<R>> mapOrdered(List<T> rows, RowTask<T, R> task, int maxConcurrency) {
+        return mapOrdered(rows, task, maxConcurrency, FetchEpoch.Token.NONE);
+    }
+
+    /**
+     * Applies the task to every row with the configured concurrency limit, until the token is
+     * cancelled. No row is started after that, and the returned future fails with a
+     * CancellationException.
+     */
+    public static <T, R> CompletableFuture<List<R>> mapOrdered(List<T> rows, RowTask<T, R> task, FetchEpoch.Token token) {
+        return mapOrdered(rows, task, concurrency, token);
+    }
+
+    /**
+     * Applies the task to every row with at most {@code maxConcurrency} rows in flight, until the
+     * token is cancelled.
+     */
+    public static <T, R> CompletableFuture<List<R>> mapOrdered(List<T> rows, RowTask<T, R> task, int maxConcurrency, FetchEpoch.Token token) {
+        Object[] results = new Object[rows.size()];
+        AtomicInteger next = new AtomicInteger();
+        int workers = Math.min(Math.max(1, maxConcurrency), rows.size());
+
+        CompletableFuture<?>[] running = new CompletableFuture<?>[workers];
+        for (int w = 0; w < workers; w++) {
+            running[w] = CompletableFuture.runAsync(() -> {
+                int index;
+                while (!token.isCancelled() && (index = next.getAndIncrement()) < rows.size()) {
+                    try {
+                        results[index] = task.apply(rows.get(index));
+                    } catch (IOException e) {
+                        // Stop handing out further rows, the page has failed anyway
+                        next.set(rows.size());
+                        throw new CompletionException(e);
+                    }
+                }
+            }, executor);
+        }
+
+        return CompletableFuture.allOf(running).thenApply(done -> {
+            token.throwIfCancelled();
+            @SuppressWarnings("unchecked")
+            List<R> ordered = (List<R>) new ArrayList<>(Arrays.asList(results));
+            return ordered;
+        });
+    }
+}
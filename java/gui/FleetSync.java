@@ -0,0 +1,296 @@
+package gui;
+
+import API.FetchEpoch;
+import API.FetchProgress;
+import API.PageParser;
+import API.RateLimiter;
+import API.RequestGovernor;
+import API.api;
+import Storage.SyncCheckpoint;
+import Storage.TelemetrySample;
+import Storage.TelemetryStore;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * The FleetSync mirrors the whole fleet into the local TelemetryStore in the background.
+ * <p>
+ * It lists every drone through /api/drones/ and then pulls every page of /api/{n}/dynamics/ for
+ * each of them, with a few drones in flight at a time and all requests going through one rate
+ * limiter. After every page the SyncCheckpoint is saved, so an interrupted sync continues with
+ * the next missing page. A drone whose last page has been stored is compacted and marked
+ * complete; its pages are from then on read from the local mirror instead of the API.
+ * <p>
+ * A mirrored drone is kept current with syncNewRecords. The checkpoint offset of a complete
+ * drone is the number of records already stored, so fetching from that offset returns exactly
+ * the records added since, and nothing stored is downloaded or checked again.
+ */
+public class FleetSync {
+    private static final int PAGE_LIMIT = 100;
+    private static final FleetSync shared = new FleetSync();
+    private static final ExecutorService syncExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "fleet-sync");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final FetchEpoch syncs = new FetchEpoch();
+    // One epoch per drone, so the delta of one drone never cancels that of another
+    private final Map<Integer, FetchEpoch> deltas = new HashMap<>();
+    private final Map<Integer, CompletableFuture<Integer>> deltasInFlight = new HashMap<>();
+    private int concurrency = 4;
+    private RateLimiter limiter = new RateLimiter(8, 8);
+    private SyncCheckpoint checkpoint;
+    private CompletableFuture<SyncCheckpoint> loadingCheckpoint;
+    private CompletableFuture<Void> running;
+
+    public static FleetSync getInstance() {
+        return shared;
+    }
+
+    /**
+     * Changes the number of drones synced at the same time and the request rate of the sync.
+     * Takes effect with the next start.
+     */
+    public synchronized void configure(int maxConcurrency, double requestsPerSecond) {
+        this.concurrency = maxConcurrency;
+        this.limiter = new RateLimiter(requestsPerSecond, Math.max(1, (int) requestsPerSecond));
+    }
+
+    /**
+     * Starts the sync, or returns the sync already running. The progress counts synced drones
+     * and received bytes and is finished when the sync ends.
+     */
+    public synchronized CompletableFuture<Void> start(FetchProgress progress) {
+        if (running != null && !running.isDone()) {
+            running.whenComplete((result, error) -> progress.finish());
+            return running;
+        }
+        FetchEpoch.Token token = syncs.next();
+        int maxConcurrency = concurrency;
+        running = CompletableFuture.supplyAsync(() -> {
+            try {
+                return listFleet(token, progress);
+            } catch (IOException e) {
+                throw new CompletionException(e);
+            }
+        }, syncExecutor).thenCompose(fleet -> {
+            progress.expectRows(fleet.size());
+            return FanOutExecutor.mapOrdered(fleet, drone -> {
+                syncDrone(drone, token, progress);
+                progress.rowDone();
+                return drone;
+            }, maxConcurrency, token);
+        }).thenAccept(synced -> { }).whenComplete((result, error) -> progress.finish());
+        return running;
+    }
+
+    /**
+     * Fetches the records a mirrored drone received since it was last synced and appends them
+     * to the local store. Concurrent calls for the same drone share one fetch.
+     *
+     * @return a future with the number of new records; 0 for a drone that is not mirrored,
+     * whose pages are fetched live anyway
+     */
+    public CompletableFuture<Integer> syncNewRecords(int drone, FetchProgress progress) {
+        if (!isMirrored(drone)) {
+            progress.finish();
+            return CompletableFuture.completedFuture(0);
+        }
+        CompletableFuture<Integer> delta;
+        synchronized (deltasInFlight) {
+            delta = deltasInFlight.get(drone);
+            if (delta == null) {
+                FetchEpoch.Token token = deltas.computeIfAbsent(drone, key -> new FetchEpoch()).next();
+                CompletableFuture<Integer> pull = CompletableFuture.supplyAsync(() -> {
+                    try {
+                        return pullFrom(drone, checkpoint().getOffset(drone), token, progress);
+                    } catch (IOException e) {
+                        throw new CompletionException(e);
+                    }
+                }, syncExecutor);
+                deltasInFlight.put(drone, pull);
+                pull.whenComplete((added, error) -> {
+                    synchronized (deltasInFlight) {
+                        deltasInFlight.remove(drone, pull);
+                    }
+                });
+                delta = pull;
+            }
+        }
+        delta.whenComplete((added, error) -> progress.finish());
+        return delta;
+    }
+
+    /**
+     * Stops the delta sync of one drone, if one is running, and leaves everything else running.
+     */
+    public void cancelNewRecords(int drone) {
+        synchronized (deltasInFlight) {
+            FetchEpoch epoch = deltas.get(drone);
+            if (epoch != null) {
+                epoch.cancel();
+            }
+        }
+    }
+
+    /**
+     * Stops the running sync and delta syncs after the pages in flight; the next start resumes
+     * from the checkpoint.
+     */
+    public void cancel() {
+        syncs.cancel();
+        synchronized (deltasInFlight) {
+            for (FetchEpoch epoch : deltas.values()) {
+                epoch.cancel();
+            }
+        }
+    }
+
+    /**
+     * Returns true if every dynamics record of the drone is in the local store, so its pages
+     * can be served without a request. The first call reads the checkpoint from disk, so the FX
+     * thread uses isMirroredAsync instead.
+     */
+    public boolean isMirrored(int drone) {
+        try {
+            return checkpoint().isComplete(drone);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Like isMirrored, but never blocks: the checkpoint is loaded once on a background thread,
+     * and the future completes right away once it has been.
+     */
+    public CompletableFuture<Boolean> isMirroredAsync(int drone) {
+        return checkpointAsync().thenApply(state -> state.isComplete(drone)).exceptionally(error -> false);
+    }
+
+    synchronized SyncCheckpoint checkpoint() throws IOException {
+        if (checkpoint == null) {
+            checkpoint = SyncCheckpoint.load(TelemetryStore.getInstance().getDirectory().resolve("sync.checkpoint"));
+        }
+        return checkpoint;
+    }
+
+    private synchronized CompletableFuture<SyncCheckpoint> checkpointAsync() {
+        if (checkpoint != null) {
+            return CompletableFuture.completedFuture(checkpoint);
+        }
+        if (loadingCheckpoint == null || loadingCheckpoint.isCompletedExceptionally()) {
+            // A failed load is retried by the next caller
+            loadingCheckpoint = CompletableFuture.supplyAsync(() -> {
+                try {
+                    return checkpoint();
+                } catch (IOException e) {
+                    throw new CompletionException(e);
+                }
+            }, FanOutExecutor.executor());
+        }
+        return loadingCheckpoint;
+    }
+
+    private synchronized RateLimiter limiter() {
+        return limiter;
+    }
+
+    /**
+     * Lists every drone of the fleet and registers its metadata, so that enriching the
+     * mirrored records needs no request per drone.
+     */
+    private List<Integer> listFleet(FetchEpoch.Token token, FetchProgress progress) throws IOException {
+        List<Integer> fleet = new ArrayList<>();
+        int offset = 0;
+        PageParser.Page<JSONObject> page;
+        do {
+            page = fetchPage("/api/drones/?limit=" + PAGE_LIMIT + "&offset=" + offset, drone -> drone, token, progress);
+            for (JSONObject drone : page.getResults()) {
+                int id = drone.getInt("id");
+                DroneMetadataRepository.getInstance().put(id, drone.getString("dronetype"), RequestGovernor.Priority.BACKGROUND);
+                fleet.add(id);
+            }
+            offset += page.getResults().size();
+        } while (page.getNext() != null && !page.getResults().isEmpty());
+
+        SyncCheckpoint state = checkpoint();
+        state.setFleet(fleet);
+        state.save();
+        return fleet;
+    }
+
+    /**
+     * Pulls the dynamics pages of one drone from its checkpoint offset up to the last page.
+     */
+    private void syncDrone(int drone, FetchEpoch.Token token, FetchProgress progress) throws IOException {
+        SyncCheckpoint state = checkpoint();
+        if (state.isComplete(drone)) {
+            return;
+        }
+        pullFrom(drone, state.getOffset(drone), token, progress);
+    }
+
+    /**
+     * Pulls the dynamics pages of one drone from the given offset up to the last page, saving
+     * the checkpoint after every page, and marks the drone complete.
+     *
+     * @return the number of records that were new to the store
+     */
+    private int pullFrom(int drone, int offset, FetchEpoch.Token token, FetchProgress progress) throws IOException {
+        SyncCheckpoint state = checkpoint();
+        TelemetryStore store = TelemetryStore.getInstance();
+        boolean complete = state.isComplete(drone);
+        int added = 0;
+        while (true) {
+            String endpoint = "/api/" + drone + "/dynamics/?limit=" + PAGE_LIMIT + "&offset=" + offset;
+            PageParser.Page<TelemetrySample> page = fetchPage(endpoint, TelemetrySample::fromJson, token, progress);
+            added += store.append(drone, page.getResults());
+            offset += page.getResults().size();
+            if (page.getNext() == null || page.getResults().isEmpty()) {
+                if (!complete) {
+                    // Interactive browsing may have stored pages out of order, restore timestamp order
+                    store.compact(drone);
+                }
+                state.markComplete(drone, offset);
+                state.save();
+                return added;
+            }
+            if (complete) {
+                state.markComplete(drone, offset);
+            } else {
+                state.advance(drone, offset);
+            }
+            state.save();
+        }
+    }
+
+    private <T> PageParser.Page<T> fetchPage(String endpoint, PageParser.ElementMapper<T> mapper,
+                                             FetchEpoch.Token token, FetchProgress progress) throws IOException {
+        token.throwIfCancelled();
+        limiter().acquire();
+        api myApi = new api(endpoint, api.getBaseUrl(),
+                "Token 40a9557fac747f55c11ad20c85caac1d43654911", "Louay");
+        myApi.setPriority(RequestGovernor.Priority.BACKGROUND);
+        try {
+            return myApi.getPageAsync(endpoint, mapper, token, progress).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package gui;
+
+import javafx.application.Platform;
+import javafx.collections.ObservableList;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * The FxBatcher is the bridge between background fetchers and a list shown on the JavaFX
+ * Application Thread.
+ * <p>
+ * Fetchers may call add, addAll, clear and setAll from any thread. The changes are collected
+ * and applied with a single setAll or addAll per Platform.runLater, so a whole page causes one
+ * list change, one layout and one sort pass instead of one per row. At most {@code maxBatch}
+ * items are applied per pass; larger loads are spread over several passes so the FX thread
+ * keeps handling input in between.
+ * <p>
+ * Views whose loads are tied to a FetchEpoch, such as ShowDynamic and ShowHistory, do not use
+ * it: they publish each finished page with one setAll in a single runLater, which already is one
+ * list change per page, and they must check that the fetch is still current on the FX thread
+ * right before publishing, which a batcher applying changes on its own cannot do.
+ */
+public class FxBatcher<T> {
+    private static final int DEFAULT_MAX_BATCH = 256;
+
+    private final ObservableList<T> target;
+    private final int maxBatch;
+    private final List<T> pending = new ArrayList<>();
+    private boolean replacePending;
+    private boolean scheduled;
+
+    public FxBatcher(ObservableList<T> target) {
+        this(target, DEFAULT_MAX_BATCH);
+    }
+
+    public FxBatcher(ObservableList<T> target, int maxBatch) {
+        this.target = target;
+        this.maxBatch = maxBatch;
+    }
+
+    public synchronized void add(T item) {
+        pending.add(item);
+        schedule();
+    }
+
+    public synchronized void addAll(Collection<? extends T> items) {
+        pending.addAll(items);
+        schedule();
+    }
+
+    /**
+     * Clears the list, dropping every change that has not been applied yet.
+     */
+    public synchronized void clear() {
+        pending.clear();
+        replacePending = true;
+        schedule();
+    }
+
+    /**
+     * Replaces the content of the list, dropping every change that has not been applied yet.
+     */
+    public synchronized void setAll(Collection<? extends T> items) {
+        pending.clear();
+        pending.addAll(items);
+        replacePending = true;
+        schedule();
+    }
+
+    private void schedule() {
+        if (!scheduled) {
+            scheduled = true;
+            Platform.runLater(this::flush);
+        }
+    }
+
+    private void flush() {
+        List<T> batch;
+        boolean replace;
+        synchronized (this) {
+            int size = Math.min(pending.size(), maxBatch);
+            batch = new ArrayList<>(pending.subList(0, size));
+            pending.subList(0, size).clear();
+            replace = replacePending;
+            replacePending = false;
+            scheduled = false;
+            if (!pending.isEmpty()) {
+                schedule();
+            }
+        }
+        if (replace) {
+            target.setAll(batch);
+        } else if (!batch.isEmpty()) {
+            target.addAll(batch);
+        }
+    }
+}
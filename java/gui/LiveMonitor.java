@@ -0,0 +1,221 @@
+package gui;
+
+import API.FetchEpoch;
+import API.FetchProgress;
+import API.PageParser;
+import API.RateLimiter;
+import API.RequestGovernor;
+import API.api;
+import Storage.TelemetrySample;
+import Storage.TelemetryStore;
+import error.ErrorHandler;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static gui.DroneDynamicsApp.DroneDynamics;
+
+/**
+ * The LiveMonitor polls the dynamics of a set of watched drones and hands every new record
+ * to the listener of its drone.
+ * <p>
+ * Each drone is polled on its own interval. While a drone is ON and its speed or position keeps
+ * changing it is polled every {@code FAST_INTERVAL}; every poll that finds it idle or unchanged
+ * doubles its interval up to {@code SLOW_INTERVAL}. All drones share one request budget, so
+ * watching more drones stretches the intervals instead of raising the load on the API.
+ * <p>
+ * A poll asks for the page starting at the newest record already seen, so it returns that
+ * record plus whatever arrived since. New records are appended to the TelemetryStore as well;
+ * for a mirrored drone they are pulled through FleetSync, which keeps its log in order.
+ * Polls use the asynchronous client and never block the scheduler thread.
+ */
+public class LiveMonitor {
+    private static final long FAST_INTERVAL = 2_000;
+    private static final long SLOW_INTERVAL = 30_000;
+    private static final int POLL_LIMIT = 10;
+    private static final LiveMonitor shared = new LiveMonitor();
+    private static final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "live-monitor");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Map<Integer, Watch> watches = new HashMap<>();
+    private RateLimiter budget = new RateLimiter(2, 4);
+
+    private static class Watch {
+        final int drone;
+        final Consumer<DroneDynamics> listener;
+        final FetchEpoch polls = new FetchEpoch();
+        int knownCount = -1;
+        TelemetrySample latest;
+        long intervalMillis = FAST_INTERVAL;
+        ScheduledFuture<?> next;
+        boolean stopped;
+
+        Watch(int drone, Consumer<DroneDynamics> listener) {
+            this.drone = drone;
+            this.listener = listener;
+        }
+    }
+
+    public static LiveMonitor getInstance() {
+        return shared;
+    }
+
+    /**
+     * Sets the request budget shared by all watched drones.
+     */
+    public synchronized void setBudget(double requestsPerSecond, int burst) {
+        budget = new RateLimiter(requestsPerSecond, burst);
+    }
+
+    /**
+     * Starts polling the drone, replacing any listener it was watched with before. The listener
+     * is called on a background thread with every new record of the drone.
+     */
+    public synchronized void watch(int drone, Consumer<DroneDynamics> listener) {
+        unwatch(drone);
+        Watch watch = new Watch(drone, listener);
+        watches.put(drone, watch);
+        schedule(watch, 0);
+    }
+
+    public synchronized void unwatch(int drone) {
+        Watch watch = watches.remove(drone);
+        if (watch != null) {
+            watch.stopped = true;
+            watch.polls.cancel();
+            if (watch.next != null) {
+                watch.next.cancel(false);
+            }
+        }
+    }
+
+    public synchronized boolean isWatching(int drone) {
+        return watches.containsKey(drone);
+    }
+
+    private synchronized void schedule(Watch watch, long delayMillis) {
+        if (!watch.stopped) {
+            watch.next = scheduler.schedule(() -> poll(watch), delayMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private synchronized long takeBudget() {
+        return budget.tryAcquire();
+    }
+
+    private void poll(Watch watch) {
+        long waitNanos = takeBudget();
+        if (waitNanos > 0) {
+            // Out of budget, try again when the next request is allowed
+            schedule(watch, TimeUnit.NANOSECONDS.toMillis(waitNanos) + 1);
+            return;
+        }
+        // The first poll only learns how many records there are, the next ones start at the newest
+        int limit = watch.knownCount < 0 ? 1 : POLL_LIMIT;
+        int offset = Math.max(0, watch.knownCount - 1);
+        String endpoint = "/api/" + watch.drone + "/dynamics/?limit=" + limit + "&offset=" + offset;
+        api myApi = new api(endpoint, api.getBaseUrl(),
+                "Token 40a9557fac747f55c11ad20c85caac1d43654911", "Louay");
+        myApi.setPriority(RequestGovernor.Priority.BACKGROUND);
+        myApi.getPageAsync(endpoint, TelemetrySample::fromJson, watch.polls.next()).thenAccept(page -> {
+            schedule(watch, handle(watch, page, offset));
+        }).exceptionally(error -> {
+            // Background polls only log, a popup every poll would bury the user
+            Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+            if (cause instanceof CancellationException) {
+                return null;
+            }
+            ErrorHandler.logError(cause instanceof Exception ? (Exception) cause : new RuntimeException(cause));
+            // Back off on errors as if the drone were idle
+            watch.intervalMillis = SLOW_INTERVAL;
+            schedule(watch, watch.intervalMillis);
+            return null;
+        });
+    }
+
+    /**
+     * Processes one polled page and returns the delay until the next poll.
+     */
+    private long handle(Watch watch, PageParser.Page<TelemetrySample> page, int offset) {
+        List<TelemetrySample> records = page.getResults();
+        if (watch.knownCount < 0) {
+            watch.knownCount = page.getCount();
+            if (page.getCount() > records.size()) {
+                return 0;
+            }
+        } else {
+            // Counted up to what was read, so a burst larger than one poll is read in full
+            watch.knownCount = offset + records.size();
+        }
+
+        TelemetrySample newest = records.isEmpty() ? null : records.get(records.size() - 1);
+        if (newest != null && (watch.latest == null || newest.getLastSeenMicros() != watch.latest.getLastSeenMicros())) {
+            try {
+                store(watch.drone, records);
+                DroneMetadataRepository.DroneMetadata metadata = DroneMetadataRepository.getInstance().get(watch.drone, RequestGovernor.Priority.BACKGROUND);
+                // The page starts with the newest record already seen, hand over only what came after it
+                for (TelemetrySample record : records) {
+                    if (watch.latest == null || record.getLastSeenMicros() > watch.latest.getLastSeenMicros()) {
+                        watch.listener.accept(DroneDynamics.fromSample(record, metadata.batteryPercentage(record.getBatteryStatus())));
+                    }
+                }
+            } catch (IOException e) {
+                ErrorHandler.logError(e);
+            }
+            watch.intervalMillis = isMoving(watch.latest, newest) ? FAST_INTERVAL : slower(watch.intervalMillis);
+            watch.latest = newest;
+        } else {
+            watch.intervalMillis = slower(watch.intervalMillis);
+        }
+        // More records arrived than one poll returns, fetch the rest right away
+        return offset + records.size() < page.getCount() ? 0 : watch.intervalMillis;
+    }
+
+    /**
+     * Keeps the local store up to date with the polled records. A mirrored drone must stay in
+     * timestamp order with offsets matching the API, so its new records are pulled by
+     * FleetSync from the checkpoint instead of appending just the polled tail.
+     */
+    private static void store(int drone, List<TelemetrySample> records) throws IOException {
+        FleetSync sync = FleetSync.getInstance();
+        if (sync.isMirrored(drone)) {
+            sync.syncNewRecords(drone, new FetchProgress()).exceptionally(error -> {
+                Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                if (!(cause instanceof CancellationException)) {
+                    ErrorHandler.logError(cause instanceof Exception ? (Exception) cause : new RuntimeException(cause));
+                }
+                return 0;
+            });
+        } else {
+            // Pages of a drone that is not mirrored are fetched live; the sync compacts its log first
+            TelemetryStore.getInstance().append(drone, records);
+        }
+    }
+
+    private static boolean isMoving(TelemetrySample previous, TelemetrySample current) {
+        if (!"ON".equalsIgnoreCase(current.getStatus())) {
+            return false;
+        }
+        if (current.getSpeed() > 0) {
+            return true;
+        }
+        return previous != null && (previous.getLongitude() != current.getLongitude()
+                || previous.getLatitude() != current.getLatitude());
+    }
+
+    private static long slower(long intervalMillis) {
+        return Math.min(SLOW_INTERVAL, intervalMillis * 2);
+    }
+}
@@ -0,0 +1,138 @@
+package gui;
+
+import API.FetchEpoch;
+import API.api;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Supplier;
+
+/**
+ * The PageCache keeps the most recently used pages of a view, loaded or still loading, so that
+ * paging back and forth and pages fetched ahead of time are served without another round trip.
+ * <p>
+ * Entries are futures: a page that is still being prefetched is joined instead of requested a
+ * second time. A page whose load failed, or whose fetch token was cancelled, is dropped and
+ * loaded again on the next request. Loaded pages expire after a configurable time to live and
+ * the least recently used page is evicted when the cache is full.
+ * <p>
+ * The last good copy of every page is kept apart from the entries, also across clear. If the
+ * upstream is unavailable (see api.isTransient), a load falls back to that copy; the copy is not
+ * cached as fresh, so the next request tries the upstream again.
+ */
+public class PageCache<V> {
+    private final Map<String, Entry<V>> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<String, V> lastGood = new LinkedHashMap<>(16, 0.75f, true);
+    private final int maxPages;
+    private final long ttlNanos;
+
+    private static class Entry<V> {
+        final CompletableFuture<V> page;
+        final FetchEpoch.Token fetch;
+        final long createdAt = System.nanoTime();
+
+        Entry(CompletableFuture<V> page, FetchEpoch.Token fetch) {
+            this.page = page;
+            this.fetch = fetch;
+        }
+    }
+
+    public PageCache(int maxPages, Duration ttl) {
+        this.maxPages = maxPages;
+        this.ttlNanos = ttl.toNanos();
+    }
+
+    /**
+     * Returns the cached or loading page for the key, or starts loading it with the loader.
+     *
+     * @param key    identifies the page, e.g. its endpoint with limit and offset
+     * @param fetch  the token the loader will use; a load still running under a cancelled token is not joined
+     * @param loader starts the load of the page
+     */
+    public synchronized CompletableFuture<V> get(String key, FetchEpoch.Token fetch, Supplier<CompletableFuture<V>> loader) {
+        Entry<V> entry = entries.get(key);
+        if (entry != null && isUsable(entry)) {
+            return entry.page;
+        }
+        CompletableFuture<V> load = loader.get();
+        Entry<V> loading = new Entry<>(load.exceptionally(error -> {
+            V stale = lastGood(key);
+            if (stale != null && api.isTransient(error)) {
+                System.err.println("Serving the last good copy of page " + key + ": " + error.getMessage());
+                return stale;
+            }
+            throw error instanceof CompletionException ? (CompletionException) error : new CompletionException(error);
+        }), fetch);
+        entries.put(key, loading);
+        trim();
+        load.whenComplete((page, error) -> {
+            if (error == null) {
+                remember(key, page);
+            } else {
+                remove(key, loading);
+            }
+        });
+        return loading.page;
+    }
+
+    /**
+     * Loads the page in the background unless it is already cached or loading. Prefetches are
+     * not tied to a view's fetch epoch, so paging onto a page that is still being prefetched
+     * joins that load instead of cancelling it.
+     */
+    public void prefetch(String key, Supplier<CompletableFuture<V>> loader) {
+        get(key, FetchEpoch.Token.NONE, loader);
+    }
+
+    /**
+     * Returns true if the page is loaded and can be shown without waiting.
+     */
+    public synchronized boolean isReady(String key) {
+        Entry<V> entry = entries.get(key);
+        return entry != null && isUsable(entry) && entry.page.isDone();
+    }
+
+    /**
+     * Drops every entry, so the next request loads its page again. The last good copies stay.
+     */
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    private synchronized void remove(String key, Entry<V> entry) {
+        entries.remove(key, entry);
+    }
+
+    private synchronized void remember(String key, V page) {
+        lastGood.put(key, page);
+        Iterator<V> it = lastGood.values().iterator();
+        while (lastGood.size() > maxPages && it.hasNext()) {
+            it.next();
+            it.remove();
+        }
+    }
+
+    private synchronized V lastGood(String key) {
+        return lastGood.get(key);
+    }
+
+    private boolean isUsable(Entry<V> entry) {
+        if (!entry.page.isDone()) {
+            // A load whose fetch was superseded will fail, a loaded page stays valid
+            return !entry.fetch.isCancelled();
+        }
+        return !entry.page.isCompletedExceptionally() && System.nanoTime() - entry.createdAt < ttlNanos;
+    }
+
+    private void trim() {
+        Iterator<Entry<V>> it = entries.values().iterator();
+        while (entries.size() > maxPages && it.hasNext()) {
+            it.next();
+            it.remove();
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package gui;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The PageSnapshot class is an immutable copy of one loaded page, keyed by the label under which
+ * each row is shown and kept in page order.
+ * <p>
+ * Background fetchers build a snapshot once the page is complete and publish it as a whole; the
+ * JavaFX Application Thread only ever reads published snapshots, so no map or list is shared
+ * while it is still being written.
+ */
+public final class PageSnapshot<T> {
+    private static final PageSnapshot<?> EMPTY = new PageSnapshot<>(-1, Collections.emptyMap());
+
+    private final int offset;
+    private final Map<String, T> rows;
+    private final List<String> keys;
+
+    public PageSnapshot(int offset, Map<String, T> rows) {
+        this.offset = offset;
+        this.rows = Collections.unmodifiableMap(new LinkedHashMap<>(rows));
+        this.keys = List.copyOf(rows.keySet());
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <T> PageSnapshot<T> empty() {
+        return (PageSnapshot<T>) EMPTY;
+    }
+
+    /**
+     * Returns the offset the page was loaded from, -1 for the empty snapshot.
+     */
+    public int getOffset() {
+        return offset;
+    }
+
+    public T get(String key) {
+        return rows.get(key);
+    }
+
+    /**
+     * Returns the row labels in page order.
+     */
+    public List<String> keys() {
+        return keys;
+    }
+
+    public List<T> values() {
+        return List.copyOf(rows.values());
+    }
+
+    public boolean isEmpty() {
+        return rows.isEmpty();
+    }
+}
@@ -0,0 +1,28 @@
+package gui;
+
+import javafx.beans.property.ReadOnlyObjectWrapper;
+import javafx.beans.value.ObservableValue;
+import javafx.scene.control.TableColumn;
+import javafx.util.Callback;
+
+import java.util.function.Function;
+
+/**
+ * The RowProperties class adapts the immutable data records (Drone, DroneType, ...) to TableView.
+ * <p>
+ * TableView only asks a column's cell value factory for the cells it is currently rendering,
+ * so wrapping the value there means observable objects exist only for visible rows, instead of
+ * one property per field of every record held in memory. It also avoids the reflective lookup
+ * PropertyValueFactory does on each call.
+ */
+public class RowProperties {
+
+    /**
+     * Returns a cell value factory that reads a column value straight from the row record.
+     *
+     * @param getter the record accessor of the column, e.g. DroneTypeApp.DroneType::typename
+     */
+    public static <S, T> Callback<TableColumn.CellDataFeatures<S, T>, ObservableValue<T>> of(Function<S, T> getter) {
+        return cell -> new ReadOnlyObjectWrapper<>(getter.apply(cell.getValue()));
+    }
+}
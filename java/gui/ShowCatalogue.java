@@ -1,23 +1,21 @@
 package gui;
 
+import API.FetchEpoch;
+import API.FetchProgress;
 import API.api;
 import error.ErrorHandler;
-import javafx.application.Platform;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
 import javafx.scene.Scene;
 import javafx.scene.control.*;
-import javafx.scene.control.cell.PropertyValueFactory;
 import javafx.scene.layout.*;
 import javafx.scene.paint.Color;
 import javafx.stage.Stage;
-import org.json.JSONArray;
-import org.json.JSONObject;
 
 import java.io.IOException;
 import java.util.concurrent.CompletableFuture;
 
-import static Animation.LoadingTask.showLoadingPopup;
+import static Animation.LoadingTask.showProgressPopup;
 import static gui.DroneSimulatorGUI.*;
 
 /**
@@ -34,34 +32,36 @@ import static gui.DroneSimulatorGUI.*;
  */
 
 public class ShowCatalogue {
+    private static final int CATALOGUE_LIMIT = 20;
+    private final FetchEpoch fetches = new FetchEpoch();
     void showCataloguePage(Stage primaryStage) throws IOException {
         VBox dashboard = createDashboardCatalogue(primaryStage);
 
         TableView<DroneTypeApp.DroneType> table = new TableView<>();
 
         TableColumn<DroneTypeApp.DroneType, Integer> idColumn = new TableColumn<>("ID");
-        idColumn.setCellValueFactory(new PropertyValueFactory<>("id"));
+        idColumn.setCellValueFactory(RowProperties.of(DroneTypeApp.DroneType::id));
 
         TableColumn<DroneTypeApp.DroneType, String> manufacturerColumn = new TableColumn<>("Manufacturer");
-        manufacturerColumn.setCellValueFactory(new PropertyValueFactory<>("manufacturer"));
+        manufacturerColumn.setCellValueFactory(RowProperties.of(DroneTypeApp.DroneType::manufacturer));
 
         TableColumn<DroneTypeApp.DroneType, String> typenameColumn = new TableColumn<>("Type Name");
-        typenameColumn.setCellValueFactory(new PropertyValueFactory<>("typename"));
+        typenameColumn.setCellValueFactory(RowProperties.of(DroneTypeApp.DroneType::typename));
 
         TableColumn<DroneTypeApp.DroneType, Integer> weightColumn = new TableColumn<>("Weight (g)");
-        weightColumn.setCellValueFactory(new PropertyValueFactory<>("weight"));
+        weightColumn.setCellValueFactory(RowProperties.of(DroneTypeApp.DroneType::weight));
 
         TableColumn<DroneTypeApp.DroneType, Integer> maxSpeedColumn = new TableColumn<>("Max Speed (km/h)");
-        maxSpeedColumn.setCellValueFactory(new PropertyValueFactory<>("maxSpeed"));
+        maxSpeedColumn.setCellValueFactory(RowProperties.of(DroneTypeApp.DroneType::maxSpeed));
 
         TableColumn<DroneTypeApp.DroneType, Integer> batteryCapacityColumn = new TableColumn<>("Battery Capacity (mAh)");
-        batteryCapacityColumn.setCellValueFactory(new PropertyValueFactory<>("batteryCapacity"));
+        batteryCapacityColumn.setCellValueFactory(RowProperties.of(DroneTypeApp.DroneType::batteryCapacity));
 
         TableColumn<DroneTypeApp.DroneType, Integer> controlRangeColumn = new TableColumn<>("Control Range (m)");
-        controlRangeColumn.setCellValueFactory(new PropertyValueFactory<>("controlRange"));
+        controlRangeColumn.setCellValueFactory(RowProperties.of(DroneTypeApp.DroneType::controlRange));
 
         TableColumn<DroneTypeApp.DroneType, Integer> maxCarriageColumn = new TableColumn<>("Max Carriage (g)");
-        maxCarriageColumn.setCellValueFactory(new PropertyValueFactory<>("maxCarriage"));
+        maxCarriageColumn.setCellValueFactory(RowProperties.of(DroneTypeApp.DroneType::maxCarriage));
 
         table.getColumns().addAll(idColumn, manufacturerColumn, typenameColumn, weightColumn, maxSpeedColumn, batteryCapacityColumn, controlRangeColumn, maxCarriageColumn);
 
@@ -80,15 +80,14 @@ public class ShowCatalogue {
         idColumn.setSortType(TableColumn.SortType.ASCENDING);
         table.getSortOrder().add(idColumn);
 
-        // Fetch new data from API asynchronously
-        CompletableFuture.runAsync(() -> {
-            try {
-                fetchAndPopulateTable(table);
-                // Apply sorting once data is fetched
-
-            } catch (IOException e) {
-                ErrorHandler.handleException(e);
-            }
+        // Fetch new data from API asynchronously, the popup follows the real fetch
+        FetchEpoch.Token fetch = fetches.next();
+        FetchProgress progress = new FetchProgress();
+        progress.expectRows(CATALOGUE_LIMIT);
+        showProgressPopup("Loading drone types", progress, fetches::cancel);
+        fetchAndPopulateTable(table, fetch, progress).whenComplete((result, error) -> progress.finish()).exceptionally(e -> {
+            ErrorHandler.handleAsyncException(e);
+            return null;
         });
 
         VBox vbox = new VBox(dashboard, table);
@@ -101,37 +100,26 @@ public class ShowCatalogue {
         primaryStage.show();
     }
 
-    private void fetchAndPopulateTable(TableView<DroneTypeApp.DroneType> table) throws IOException {
+    private CompletableFuture<Void> fetchAndPopulateTable(TableView<DroneTypeApp.DroneType> table, FetchEpoch.Token fetch, FetchProgress progress) {
         String endpoint = "/api/dronetypes/";
-        String domain = "http://dronesim.facets-labs.com";
+        String domain = api.getBaseUrl();
         String token = "Token 40a9557fac747f55c11ad20c85caac1d43654911";
         String agent = "Louay";
 
         api myApi1 = new api(endpoint, domain, token, agent);
-        myApi1.createConnection("/api/dronetypes/?limit=20");
-        String response1 = myApi1.retrieveResponse();
-
-        JSONArray drones = new JSONObject(response1).getJSONArray("results");
-
-        // Clear previous items in the table
-        Platform.runLater(() -> table.getItems().clear());
-
-        for (int i = 0; i < drones.length(); i++) {
-            JSONObject drone = drones.getJSONObject(i);
-            DroneTypeApp.DroneType droneType = new DroneTypeApp.DroneType(
-                    drone.getInt("id"),
-                    drone.getString("manufacturer"),
-                    drone.getString("typename"),
-                    drone.getInt("weight"),
-                    drone.getInt("max_speed"),
-                    drone.getInt("battery_capacity"),
-                    drone.getInt("control_range"),
-                    drone.getInt("max_carriage")
-            );
-
-            // Add items to the table on the JavaFX Application Thread
-            Platform.runLater(() -> table.getItems().add(droneType));
-        }
+        // Types are decoded while the page streams in
+        FxBatcher<DroneTypeApp.DroneType> rows = new FxBatcher<>(table.getItems());
+        return myApi1.getPageAsync("/api/dronetypes/?limit=" + CATALOGUE_LIMIT, droneType -> {
+            DroneTypeApp.DroneType row = DroneTypeApp.DroneType.fromJson(droneType);
+            progress.rowDone();
+            return row;
+        }, fetch, progress).thenAccept(page -> {
+            for (DroneTypeApp.DroneType droneType : page.getResults()) {
+                DroneTypeCache.getInstance().put(droneType);
+            }
+            // Replace the table content in one pass on the JavaFX Application Thread
+            rows.setAll(page.getResults());
+        });
     }
 
     private  VBox createDashboardCatalogue(Stage primaryStage) {
@@ -172,7 +160,6 @@ public class ShowCatalogue {
 
         Button btnRefresh = createToolbarButton("Refresh", "/image/refresh.png");
         btnRefresh.setOnAction(event -> {
-            showLoadingPopup();
             try {
                 showCataloguePage(primaryStage);
                 primaryStage.centerOnScreen();
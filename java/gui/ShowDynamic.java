@@ -1,9 +1,16 @@
 package gui;
 
+import API.FetchEpoch;
+import API.FetchProgress;
+import API.RequestGovernor;
 import API.api;
+import Storage.TelemetrySample;
+import Storage.TelemetryStore;
 import error.ErrorHandler;
 import javafx.animation.PauseTransition;
 import javafx.application.Platform;
+import javafx.beans.value.ChangeListener;
+import javafx.beans.value.ObservableValue;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.geometry.Insets;
@@ -18,20 +25,14 @@ import javafx.scene.paint.Color;
 import javafx.stage.Popup;
 import javafx.stage.Stage;
 import javafx.util.Duration;
-import org.json.JSONArray;
-import org.json.JSONObject;
 import java.io.*;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
-import java.nio.file.StandardOpenOption;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicBoolean;
-import static Animation.LoadingTask.showLoadingPopup;
-import static Animation.LoadingTask.showLoadingPopup2;
+import static Animation.LoadingTask.showProgressPopup;
 import static gui.DroneDynamicsApp.DroneDynamics;
-import static gui.DroneDynamicsApp.id;
 import static gui.DroneSimulatorGUI.*;
 
 /**
@@ -49,7 +50,8 @@ import static gui.DroneSimulatorGUI.*;
 
 
 public class ShowDynamic {
-    private Map<String, DroneDynamics> droneDataMap;
+    // Only ever replaced as a whole; the FX thread reads the published snapshot
+    private volatile PageSnapshot<DroneDynamics> droneData = PageSnapshot.empty();
     private Label idLabel;
     private Label timeLabel;
     private Label statusLabel;
@@ -64,28 +66,27 @@ public class ShowDynamic {
     private Label lastSeenLabel;
     private int offset = 0;
     private static final int LIMIT = 10;
-    private static final int MAX_OFFSET = 2140;
     private ChoiceBox<String> choiceBox;
     private ChoiceBox<Integer> numberChoiceBox;
+    private ToggleButton liveToggle;
+    // The drone the live monitor polls for this view, if any
+    private Integer watchedDrone;
     private Hyperlink googleMapsLink;
     private static int totalDrones = 0;
     private ImageView droneImageView;
-    private List<String> allDroneIDs;
-    private final AtomicBoolean cancelFetch = new AtomicBoolean(false);
+    // The number of dynamics records of every drone, as reported by its last loaded page
+    private final Map<Integer, Integer> recordCounts = new ConcurrentHashMap<>();
+    // Each page load takes a token from here; starting the next load cancels the previous one
+    private final FetchEpoch fetches = new FetchEpoch();
+    // Enriched pages of this view, including the neighbours fetched ahead of time
+    private final PageCache<List<DroneDynamics>> pages = new PageCache<>(8, java.time.Duration.ofMinutes(1));
     ObservableList<String> droneIds = FXCollections.observableArrayList();
-    private CompletableFuture<Void> currentFetchTask;
 
-    public ShowDynamic() {
-        // Initialize all drone ID dynamics  from 1 to 2145
-        allDroneIDs = new ArrayList<>();
-        for (int i = 1; i <= 2145; i++) {
-            allDroneIDs.add(String.valueOf(i));
-        }
-    }
     public void showDynamicPage(Stage primaryStage) {
         primaryStage.setTitle("Drone Dynamics Information");
 
-        droneDataMap = new HashMap<>();
+        // A rebuilt view starts without a page, so the first refresh fetches
+        droneData = PageSnapshot.empty();
         VBox dashboard = createDashboardDynamic(primaryStage);
 
         TextField searchField = new TextField();
@@ -94,15 +95,13 @@ public class ShowDynamic {
         searchField.setOnKeyPressed(event ->{
             if (event.getCode() == KeyCode.ENTER) {
                 String row= searchField.getText();
-                if (row =="0"||row.isEmpty()||Integer.parseInt(row)>2145){
+                if (row =="0"||row.isEmpty()||Integer.parseInt(row)>recordCounts.getOrDefault(numberChoiceBox.getValue(), Integer.MAX_VALUE)){
                     showAutoClosingErrorPopup(primaryStage, "we can't find this number ", "ERROR", " Please try other one.");
                 }else {
-                    droneDataMap.clear();
-                    choiceBox.getItems().clear();
+                    clearPage();
                     offset=Integer.parseInt(row);
                     totalDrones=offset-1 ;
                     try {
-                        showLoadingPopup2();
                         refreshDroneData(numberChoiceBox.getValue(), offset-1, true);
                     } catch (IOException e) {
                         throw new RuntimeException(e);
@@ -131,18 +130,16 @@ public class ShowDynamic {
         numberChoiceBox.setPrefWidth(100);
         numberChoiceBox.getSelectionModel().selectedItemProperty().addListener((observable, oldValue, newValue) -> {
             if (newValue != null) {
-                choiceBox.getItems().clear();
-                droneDataMap.clear();
+                clearPage();
                 // Cancel ongoing fetch operation
-                if (currentFetchTask != null) {
-                    cancelFetch.set(true);
+                fetches.cancel();
+                if (liveToggle != null && liveToggle.isSelected()) {
+                    watchLive(newValue);
                 }
-                choiceBox.getItems().clear();
                 totalDrones = 0;
                 offset = 0;
                 try {
                     refreshDroneData(newValue, offset, true);
-                    showLoadingPopup2();
 
                 } catch (IOException e) {
                     e.printStackTrace();
@@ -198,23 +195,34 @@ public class ShowDynamic {
 
         Button btnRefresh = new Button("Refresh");
         btnRefresh.setOnAction(event -> {
-            try {
-                refreshDroneData(numberChoiceBox.getValue(), offset, false); // Do not reset choice box
-            } catch (IOException e) {
-                ErrorHandler.handleIOException(e);
-            }
+            int number = numberChoiceBox.getValue();
+            FleetSync.getInstance().isMirroredAsync(number).thenAccept(mirrored -> Platform.runLater(() -> {
+                if (mirrored) {
+                    // Only the records added since the last sync are fetched
+                    syncNewRecords(number);
+                    return;
+                }
+                // Refresh means fresh data: drop the shown and the cached pages, then fetch again
+                pages.clear();
+                droneData = PageSnapshot.empty();
+                try {
+                    refreshDroneData(number, offset, true);
+                } catch (IOException e) {
+                    ErrorHandler.handleIOException(e);
+                }
+            }));
         });
 
         Button btnNext = new Button("Next");
         btnNext.setOnAction(e -> {
-            if (offset + LIMIT <= MAX_OFFSET) {
+            int lastOffset = lastOffset(numberChoiceBox.getValue());
+            // While the number of records is unknown the next page is simply tried
+            if (lastOffset < 0 || offset + LIMIT <= lastOffset) {
                 offset += LIMIT;
-                choiceBox.getItems().clear();
-                droneDataMap.clear();
+                clearPage();
                 totalDrones+=10;
                 try {
                     refreshDroneData(numberChoiceBox.getValue(), offset, true);// Reset choice box
-                    showLoadingPopup2();
                 } catch (IOException ex) {
                     ErrorHandler.handleIOException(ex);
                 }
@@ -227,13 +235,10 @@ public class ShowDynamic {
         btnPrevious.setOnAction(e -> {
             if (offset - LIMIT >= 0) {
                 offset -= LIMIT;
-                choiceBox.getItems().clear();
-                droneDataMap.clear();
+                clearPage();
                 try {
-                    if (totalDrones==2140){totalDrones-=10;}
-                    else totalDrones -= 10;
+                    totalDrones -= LIMIT;
                     refreshDroneData(numberChoiceBox.getValue(), offset, true);
-                    showLoadingPopup2();
                 } catch (IOException ex) {
                     ErrorHandler.handleIOException(ex);
                 }
@@ -244,19 +249,43 @@ public class ShowDynamic {
 
         Button btnLast = new Button("Last");
         btnLast.setOnAction(e -> {
-            offset = 2140;
-            totalDrones=2140;
-            choiceBox.getItems().clear();
-            droneDataMap.clear();
+            int lastOffset = lastOffset(numberChoiceBox.getValue());
+            if (lastOffset < 0) {
+                showAutoClosingErrorPopup(primaryStage, "The number of records is not known yet", "ERROR", " Please wait for the page to load.");
+                return;
+            }
+            offset = lastOffset;
+            totalDrones = lastOffset;
+            clearPage();
             try {
-                showLoadingPopup2();
                 refreshDroneData(numberChoiceBox.getValue(), offset, true);
             } catch (IOException ex) {
                 ErrorHandler.handleIOException(ex);
             }
         });
 
-        HBox nextButtonBox = new HBox(10, btnPrevious, btnNext, btnLast);
+        Button btnSync = new Button("Sync fleet");
+        btnSync.setOnAction(e -> {
+            // Mirrors every drone into the local store; a cancelled sync resumes on the next click
+            FetchProgress progress = new FetchProgress();
+            showProgressPopup("Syncing fleet", progress, FleetSync.getInstance()::cancel);
+            FleetSync.getInstance().start(progress).exceptionally(error -> {
+                ErrorHandler.handleAsyncException(error);
+                return null;
+            });
+        });
+
+        liveToggle = new ToggleButton("Live");
+        liveToggle.setOnAction(e -> {
+            // Live mode polls the selected drone and shows every new record as it arrives
+            if (liveToggle.isSelected()) {
+                watchLive(numberChoiceBox.getValue());
+            } else {
+                stopLive();
+            }
+        });
+
+        HBox nextButtonBox = new HBox(10, btnPrevious, btnNext, btnLast, btnSync, liveToggle);
         nextButtonBox.setAlignment(Pos.BOTTOM_LEFT);
         nextButtonBox.setPadding(new Insets(20));
 
@@ -273,11 +302,20 @@ public class ShowDynamic {
         Scene dynamicScene = new Scene(root, 1300, 1200);
         primaryStage.centerOnScreen();
         primaryStage.setScene(dynamicScene);
+        // Leaving the view any way, including rebuilding it, stops its live polling
+        primaryStage.sceneProperty().addListener(new ChangeListener<>() {
+            @Override
+            public void changed(ObservableValue<? extends Scene> observable, Scene oldScene, Scene newScene) {
+                if (oldScene == dynamicScene) {
+                    stopLive();
+                    primaryStage.sceneProperty().removeListener(this);
+                }
+            }
+        });
         primaryStage.show();
 
         try {
             refreshDroneData(numberChoiceBox.getValue(), offset, true);
-            showLoadingPopup2();
         } catch (IOException e) {
             ErrorHandler.handleIOException(e);
         }
@@ -350,14 +388,19 @@ public class ShowDynamic {
 
         Button btnRefresh = createToolbarButton("Refresh", "/image/refresh.png");
         btnRefresh.setOnAction(event -> {
-            showLoadingPopup();
-            try {
-                refreshDroneData(numberChoiceBox.getValue(), offset, true);
+            int number = numberChoiceBox.getValue();
+            FleetSync.getInstance().isMirroredAsync(number).thenAccept(mirrored -> Platform.runLater(() -> {
+                if (!mirrored) {
+                    // Refresh means fresh data, not the cached pages
+                    pages.clear();
+                }
                 showDynamicPage(primaryStage);
                 primaryStage.centerOnScreen();
-            } catch (IOException e) {
-                ErrorHandler.handleIOException(e);
-            }
+                if (mirrored) {
+                    // The mirror is current up to the last sync, only newer records are fetched
+                    syncNewRecords(number);
+                }
+            }));
         });
 
 
@@ -391,41 +434,43 @@ public class ShowDynamic {
     }
 
     private void showDroneDetails(String droneId) {
-        if (droneDataMap.containsKey(droneId)) {
-            DroneDynamics drone = droneDataMap.get(droneId);
-            if (drone != null) {
-                idLabel.setText("Drone ID: " + drone.getDrone());
-                timeLabel.setText("Time Stamp: " + drone.getTimestamp());
-                statusLabel.setText("Status: " + drone.getStatus());
-                batteryLabel.setText("Battery: " + drone.getBatteryStatus()+ "%");
-                speedLabel.setText("Speed: " + drone.getSpeed() + " Km/h");
-                yawLabel.setText("Yaw: " + drone.getAlignYaw());
-                pitchLabel.setText("Pitch: " + drone.getAlignPitch());
-                rollLabel.setText("Roll: " + drone.getAlignRoll());
-                longitudeLabel.setText("Longitude: " + drone.getLongitude());
-                latitudeLabel.setText("Latitude: " + drone.getLatitude());
-                lastSeenLabel.setText("Last Seen: " + drone.getLastSeen());
-
-                String latitude = String.valueOf(drone.getLatitude());
-                String longitude = String.valueOf(drone.getLongitude());
-                String googleMapsUrl = String.format("https://www.google.com/maps/search/?api=1&query=%s,%s", latitude, longitude);
-                googleMapsLink.setText(googleMapsUrl);
-
-                String batteryImagePath = getBatteryImagePath(drone.getBatteryStatus());
-                Image batteryImage = new Image(Objects.requireNonNull(getClass().getResourceAsStream(batteryImagePath)));
-                ImageView batteryImageView = new ImageView(batteryImage);
-                batteryImageView.setFitWidth(50);
-                batteryImageView.setFitHeight(50);
-                batteryImageView.setPreserveRatio(true);
-                batteryLabel.setGraphic(batteryImageView);
-
-                String imagePath = "/imagedrone/" + drone.getDrone() + ".png";
-                Image droneImage = new Image(Objects.requireNonNull(getClass().getResourceAsStream(imagePath)));
-                droneImageView.setImage(droneImage);
-            }
+        DroneDynamics drone = droneData.get(droneId);
+        if (drone != null) {
+            showDroneDetails(drone);
         }
     }
 
+    private void showDroneDetails(DroneDynamics drone) {
+        idLabel.setText("Drone ID: " + drone.drone());
+        timeLabel.setText("Time Stamp: " + drone.timestampText());
+        statusLabel.setText("Status: " + drone.status());
+        batteryLabel.setText("Battery: " + drone.batteryStatus()+ "%");
+        speedLabel.setText("Speed: " + drone.speed() + " Km/h");
+        yawLabel.setText("Yaw: " + drone.alignYaw());
+        pitchLabel.setText("Pitch: " + drone.alignPitch());
+        rollLabel.setText("Roll: " + drone.alignRoll());
+        longitudeLabel.setText("Longitude: " + drone.longitude());
+        latitudeLabel.setText("Latitude: " + drone.latitude());
+        lastSeenLabel.setText("Last Seen: " + drone.lastSeenText());
+
+        String latitude = String.valueOf(drone.latitude());
+        String longitude = String.valueOf(drone.longitude());
+        String googleMapsUrl = String.format("https://www.google.com/maps/search/?api=1&query=%s,%s", latitude, longitude);
+        googleMapsLink.setText(googleMapsUrl);
+
+        String batteryImagePath = getBatteryImagePath(drone.batteryStatus());
+        Image batteryImage = new Image(Objects.requireNonNull(getClass().getResourceAsStream(batteryImagePath)));
+        ImageView batteryImageView = new ImageView(batteryImage);
+        batteryImageView.setFitWidth(50);
+        batteryImageView.setFitHeight(50);
+        batteryImageView.setPreserveRatio(true);
+        batteryLabel.setGraphic(batteryImageView);
+
+        String imagePath = "/imagedrone/" + drone.drone() + ".png";
+        Image droneImage = new Image(Objects.requireNonNull(getClass().getResourceAsStream(imagePath)));
+        droneImageView.setImage(droneImage);
+    }
+
 
 
 
@@ -443,117 +488,205 @@ public class ShowDynamic {
 
     private void refreshDroneData(int numberOfDrones, int offset, boolean resetChoiceBox) throws IOException {
 
-        if (droneDataMap.isEmpty()) {  // Cancel ongoing fetch operation
-            if (currentFetchTask != null) {
-                cancelFetch.set(true);
-            }
+        PageSnapshot<DroneDynamics> page = droneData;
+        if (page.isEmpty()) {  // Cancel ongoing fetch operation
+            FetchEpoch.Token fetch = fetches.next();
             // Clear previous drone data
-            droneDataMap.clear();
-            choiceBox.getItems().clear();
-            // Start new fetch operation
-            currentFetchTask = CompletableFuture.runAsync(() -> {
-                try {
-                    fetchAndProcessData(numberOfDrones, offset, resetChoiceBox);
-                } catch (IOException e) {
-                    e.printStackTrace();
-                } finally {
-                    cancelFetch.set(false);
-                }
-            });
+            clearPage();
+            // The popup follows the real fetch and closes as soon as the page is published
+            FetchProgress progress = new FetchProgress();
+            showProgressPopup("Loading drone dynamics", progress, fetches::cancel);
+            // Start new fetch operation; the row labels are taken here, on the FX thread
+            fetchAndProcessData(numberOfDrones, offset, totalDrones, resetChoiceBox, fetch, progress)
+                    .whenComplete((result, error) -> progress.finish())
+                    .exceptionally(error -> {
+                        ErrorHandler.handleAsyncException(error);
+                        return null;
+                    });
         }else {
             // If not empty, update UI with existing data
-            Platform.runLater(() -> {
-                choiceBox.getItems().addAll(droneDataMap.keySet());
-                // Optionally, update UI with the first drone's details
-                if (!droneDataMap.isEmpty()) {
-                    showDroneDetails(droneDataMap.keySet().iterator().next());
-                }
-            });
+            choiceBox.getItems().setAll(page.keys());
+            // Optionally, update UI with the first drone's details
+            showDroneDetails(page.keys().get(0));
         }
     }
 
 
 
-    private void fetchAndProcessData(int number, int offset, boolean resetChoiceBox) throws IOException {
+    private CompletableFuture<Void> fetchAndProcessData(int number, int offset, int firstDrone, boolean resetChoiceBox, FetchEpoch.Token fetch, FetchProgress progress) {
+        AtomicBoolean loadedHere = new AtomicBoolean();
+        return pages.get(pageKey(number, offset), fetch, () -> {
+            loadedHere.set(true);
+            return loadPage(number, offset, fetch, progress, RequestGovernor.Priority.INTERACTIVE);
+        }).thenAccept(page -> {
+            if (!loadedHere.get()) {
+                // A joined prefetch or a cached page never reported to this progress, account for its rows now
+                progress.expectRows(page.size());
+                progress.rowsDone(page.size());
+            }
+            Map<String, DroneDynamics> rows = new LinkedHashMap<>();
+            for (int i = 0; i < page.size(); i++) {
+                rows.put(String.valueOf(firstDrone + i + 1), page.get(i));
+            }
+            PageSnapshot<DroneDynamics> snapshot = new PageSnapshot<>(offset, rows);
+            Platform.runLater(() -> {
+                // The epoch only moves on the FX thread, so this check cannot race a newer load
+                if (!fetch.isCurrent()) {
+                    return;
+                }
+                droneData = snapshot;
+                if (resetChoiceBox) {
+                    // One update of the choice box for the whole page
+                    choiceBox.getItems().setAll(snapshot.keys());
+                }
+                prefetchAround(number, offset);
+            });
+        });
+    }
+
+    /**
+     * Fetches one page of dynamics and resolves the drone metadata of every row. The progress
+     * may be null, as for prefetches, which load with background priority.
+     */
+    private CompletableFuture<List<DroneDynamics>> loadPage(int number, int offset, FetchEpoch.Token fetch, FetchProgress progress, RequestGovernor.Priority priority) {
         String endpoint = "/api/" + number + "/dynamics/";
-        String domain = "http://dronesim.facets-labs.com";
+        String domain = api.getBaseUrl();
         String token = "Token 40a9557fac747f55c11ad20c85caac1d43654911";
         String agent = "Louay";
 
-        api myApi = new api(endpoint, domain, token, agent);
-        myApi.createConnection(endpoint + "?limit=" + LIMIT + "&offset=" + offset);
-        String response = myApi.retrieveResponse();
-
-        JSONArray drones = new JSONObject(response).getJSONArray("results");
-        for (int i = 0; i < drones.length(); i++) {
-            JSONObject droneJson = drones.getJSONObject(i);
-            int id = id(droneJson.getString("drone"));
-            int Battery = DroneDynamicsApp.Battery(droneJson.getString("drone"), droneJson.getInt("battery_status"));
-
-            DroneDynamics droneDynamics = new DroneDynamics(
-                    id,
-                    droneJson.getString("timestamp"),
-                    droneJson.getInt("speed"),
-                    droneJson.getDouble("align_roll"),
-                    droneJson.getDouble("align_pitch"),
-                    droneJson.getDouble("align_yaw"),
-                    droneJson.getDouble("longitude"),
-                    droneJson.getDouble("latitude"),
-                    Battery,
-                    droneJson.getString("last_seen"),
-                    droneJson.getString("status")
-            );
-            if (resetChoiceBox) {
-                int droneNumber = totalDrones + i + 1;
-                choiceBox.getItems().addAll(String.valueOf(droneNumber));
+        // The checkpoint is read off the FX thread, loadPage is called from it
+        CompletableFuture<List<TelemetrySample>> records = FleetSync.getInstance().isMirroredAsync(number).thenCompose(mirrored -> {
+            if (mirrored) {
+                // The whole drone is in the local store, no request needed
+                return CompletableFuture.supplyAsync(() -> {
+                    try {
+                        // A mirrored drone has every record of the API in the store
+                        recordCounts.put(number, TelemetryStore.getInstance().size(number));
+                        return TelemetryStore.getInstance().readPage(number, offset, LIMIT);
+                    } catch (IOException e) {
+                        throw new CompletionException(e);
+                    }
+                }, FanOutExecutor.executor());
             }
+            api myApi = new api(endpoint, domain, token, agent);
+            myApi.setPriority(priority);
+            // Records are decoded into samples while the page streams in
+            return myApi.getPageAsync(endpoint + "?limit=" + LIMIT + "&offset=" + offset, TelemetrySample::fromJson, fetch, progress).thenApply(response -> {
+                List<TelemetrySample> samples = response.getResults();
+                recordCounts.put(number, response.getCount());
+                // Append the new records to the local telemetry log, they are valid even if the page is superseded
+                try {
+                    TelemetryStore.getInstance().append(number, samples);
+                } catch (IOException e) {
+                    // The page is already here, a failed save must not keep it from being shown
+                    ErrorHandler.logError(e);
+                }
+                return samples;
+            });
+        });
+        return records.thenCompose(samples -> {
+            if (progress != null) {
+                progress.expectRows(samples.size());
+            }
+            // Enrich all rows of the page in parallel, results come back in page order
+            return FanOutExecutor.mapOrdered(samples, sample -> {
+                DroneDynamics row = toDroneDynamics(sample, priority);
+                if (progress != null) {
+                    progress.rowDone();
+                }
+                return row;
+            }, fetch);
+        });
+    }
 
-            String droneNumber = String.valueOf(totalDrones + i + 1);
-            droneDataMap.put(droneNumber, droneDynamics);
+    /**
+     * Loads the next and the previous page in the background, so Next and Previous can be
+     * served from the page cache.
+     */
+    private void prefetchAround(int number, int offset) {
+        int lastOffset = lastOffset(number);
+        if (lastOffset >= 0 && offset + LIMIT <= lastOffset) {
+            pages.prefetch(pageKey(number, offset + LIMIT), () -> loadPage(number, offset + LIMIT, FetchEpoch.Token.NONE, null, RequestGovernor.Priority.BACKGROUND));
+        }
+        if (offset - LIMIT >= 0) {
+            pages.prefetch(pageKey(number, offset - LIMIT), () -> loadPage(number, offset - LIMIT, FetchEpoch.Token.NONE, null, RequestGovernor.Priority.BACKGROUND));
         }
+    }
 
-        // Save data to JSON file
-        String jsonString = drones.toString();
-        String filename = number + ".json";
-        saveJsonToFile(filename, jsonString);
+    /**
+     * Returns the offset of the last page of the drone, or -1 while its number of records is
+     * not known.
+     */
+    private int lastOffset(int number) {
+        Integer count = recordCounts.get(number);
+        if (count == null) {
+            return -1;
+        }
+        return count == 0 ? 0 : ((count - 1) / LIMIT) * LIMIT;
     }
 
-    private void saveJsonToFile(String filename, String jsonString) throws IOException {
-        Path filePath = Paths.get(filename);
-        JSONArray newArray = new JSONArray(jsonString);
-
-        if (Files.exists(filePath)) {
-            // Read existing content
-            String existingJsonString = new String(Files.readAllBytes(filePath));
-            JSONArray existingArray = new JSONArray(existingJsonString);
-
-            // Add only new items that don't already exist
-            for (int i = 0; i < newArray.length(); i++) {
-                JSONObject newObject = newArray.getJSONObject(i);
-                boolean exists = false;
-
-                // Assuming 'id' is a unique identifier for the drone object
-                for (int j = 0; j < existingArray.length(); j++) {
-                    JSONObject existingObject = existingArray.getJSONObject(j);
-                    if (Objects.equals(newObject.getString("last_seen"), existingObject.getString("last_seen"))) {
-                        exists = true;
-                        break;
-                    }
-                }
+    private static String pageKey(int number, int offset) {
+        return number + "@" + offset;
+    }
 
-                if (!exists) {
-                    existingArray.put(newObject);
+    /**
+     * Appends the records a mirrored drone received since the last sync to the local store and
+     * reloads the page from it. The page is reloaded even if nothing was added, since the live
+     * monitor may have synced the new records already.
+     */
+    private void syncNewRecords(int number) {
+        FetchProgress progress = new FetchProgress();
+        // Cancel stops this drone only, a running fleet sync goes on
+        showProgressPopup("Fetching new records", progress, () -> FleetSync.getInstance().cancelNewRecords(number));
+        FleetSync.getInstance().syncNewRecords(number, progress).thenAccept(added -> {
+            Platform.runLater(() -> {
+                pages.clear();
+                if (numberChoiceBox.getValue() != number) {
+                    return;
+                }
+                clearPage();
+                try {
+                    refreshDroneData(number, offset, true);
+                } catch (IOException e) {
+                    ErrorHandler.handleIOException(e);
                 }
+            });
+        }).exceptionally(error -> {
+            ErrorHandler.handleAsyncException(error);
+            return null;
+        });
+    }
+
+    private void watchLive(int number) {
+        stopLive();
+        watchedDrone = number;
+        LiveMonitor.getInstance().watch(number, update -> Platform.runLater(() -> {
+            if (liveToggle.isSelected() && numberChoiceBox.getValue() == number) {
+                showDroneDetails(update);
             }
+        }));
+    }
 
-            // Convert combined JSONArray back to String
-            jsonString = existingArray.toString();
+    private void stopLive() {
+        if (watchedDrone != null) {
+            LiveMonitor.getInstance().unwatch(watchedDrone);
+            watchedDrone = null;
         }
+    }
 
-        // Write combined content (existing + new) to file
-        Files.write(filePath, jsonString.getBytes(), StandardOpenOption.CREATE);
+    /**
+     * Drops the current page. Runs on the FX thread, pages are only published there.
+     */
+    private void clearPage() {
+        droneData = PageSnapshot.empty();
+        choiceBox.getItems().clear();
     }
 
+    private DroneDynamics toDroneDynamics(TelemetrySample sample, RequestGovernor.Priority priority) throws IOException {
+        // Lookups for a prefetched page queue with the background work, like the page itself
+        DroneMetadataRepository.DroneMetadata metadata = DroneMetadataRepository.getInstance().get(sample.getDrone(), priority);
+        return DroneDynamics.fromSample(sample, metadata.batteryPercentage(sample.getBatteryStatus()));
+    }
 
     private String getBatteryImagePath(int batteryStatus) {
         if (batteryStatus >= 80) {
@@ -1,23 +1,26 @@
 package gui;
 
+import API.FetchEpoch;
+import API.FetchProgress;
+import API.PageParser;
+import API.RequestGovernor;
 import API.api;
 import error.ErrorHandler;
-import javafx.collections.ObservableList;
+import javafx.application.Platform;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
 import javafx.scene.Scene;
 import javafx.scene.control.*;
-import javafx.scene.control.cell.PropertyValueFactory;
 import javafx.scene.input.KeyCode;
 import javafx.scene.layout.*;
 import javafx.scene.paint.Color;
 import javafx.stage.Stage;
-import org.json.JSONArray;
-import org.json.JSONObject;
 import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.CompletableFuture;
-import static Animation.LoadingTask.showLoadingPopup;
-import static Animation.LoadingTask.showLoadingPopup2;
+import static Animation.LoadingTask.showProgressPopup;
 import static gui.DroneSimulatorGUI.*;
 import static gui.ShowDynamic.showAutoClosingErrorPopup;
 
@@ -37,8 +40,10 @@ public class ShowHistory {
     private int offset = 0;
     private static final int LIMIT = 10;
     private static final int MAX_OFFSET = 50;
-    private CompletableFuture<Void> currentFetchTask;
-    ObservableList<DroneApp.Drone> lastAddedItems = null;
+    // Each page load takes a token from here; starting the next load cancels the previous one
+    private final FetchEpoch fetches = new FetchEpoch();
+    // Unfiltered pages of this view, including the neighbours fetched ahead of time
+    private final PageCache<List<DroneApp.Drone>> pages = new PageCache<>(8, Duration.ofMinutes(5));
 
     void showHistoryPage(Stage primaryStage) throws IOException {
         VBox daschbord = createDashboardHistory(primaryStage);
@@ -54,25 +59,25 @@ public class ShowHistory {
         TableView<DroneApp.Drone> table = new TableView<>();
 
         TableColumn<DroneApp.Drone, Integer> idColumn = new TableColumn<>("ID");
-        idColumn.setCellValueFactory(new PropertyValueFactory<>("id"));
+        idColumn.setCellValueFactory(RowProperties.of(DroneApp.Drone::id));
 
         TableColumn<DroneApp.Drone, String> dronetypeColumn = new TableColumn<>("Drone Type");
-        dronetypeColumn.setCellValueFactory(new PropertyValueFactory<>("dronetype"));
+        dronetypeColumn.setCellValueFactory(RowProperties.of(DroneApp.Drone::dronetype));
 
         TableColumn<DroneApp.Drone, String> dronemanufacturerColumn = new TableColumn<>("Drone Manufacturer");
-        dronemanufacturerColumn.setCellValueFactory(new PropertyValueFactory<>("manufacturer"));
+        dronemanufacturerColumn.setCellValueFactory(RowProperties.of(DroneApp.Drone::manufacturer));
 
         TableColumn<DroneApp.Drone, String> createdColumn = new TableColumn<>("Created");
-        createdColumn.setCellValueFactory(new PropertyValueFactory<>("created"));
+        createdColumn.setCellValueFactory(RowProperties.of(DroneApp.Drone::createdText));
 
         TableColumn<DroneApp.Drone, String> serialnumberColumn = new TableColumn<>("Serial Number");
-        serialnumberColumn.setCellValueFactory(new PropertyValueFactory<>("serialnumber"));
+        serialnumberColumn.setCellValueFactory(RowProperties.of(DroneApp.Drone::serialnumber));
 
         TableColumn<DroneApp.Drone, Integer> carriageWeightColumn = new TableColumn<>("Carriage Weight");
-        carriageWeightColumn.setCellValueFactory(new PropertyValueFactory<>("carriageWeight"));
+        carriageWeightColumn.setCellValueFactory(RowProperties.of(DroneApp.Drone::carriageWeight));
 
         TableColumn<DroneApp.Drone, String> carriageTypeColumn = new TableColumn<>("Carriage Type");
-        carriageTypeColumn.setCellValueFactory(new PropertyValueFactory<>("carriageType"));
+        carriageTypeColumn.setCellValueFactory(RowProperties.of(DroneApp.Drone::carriageType));
 
         table.getColumns().addAll(idColumn, dronetypeColumn, dronemanufacturerColumn, createdColumn, serialnumberColumn, carriageWeightColumn, carriageTypeColumn);
 
@@ -116,7 +121,6 @@ public class ShowHistory {
         btnNext.setOnAction(e -> {
             if (offset + LIMIT <= MAX_OFFSET) {
                 offset += LIMIT;
-                showLoadingPopup2();
                 fetchAndPopulateData(table, 10,offset);
             } else {
                 System.out.println("Invalid next page");
@@ -128,7 +132,6 @@ public class ShowHistory {
         btnPrevious.setOnAction(e -> {
             if (offset - LIMIT >= 0) {
                 offset -= LIMIT;
-                showLoadingPopup2();
                 fetchAndPopulateData(table, 10,offset);
             } else {
                 System.out.println("Invalid button, already at last page from prvious");
@@ -140,7 +143,6 @@ public class ShowHistory {
         btnLast.setOnAction(e -> {
             if (offset != MAX_OFFSET) {
                 offset = MAX_OFFSET;
-                showLoadingPopup2();
                 fetchAndPopulateData(table, 10,offset);
             } else {
                 System.out.println("Invalid button, already at last page");
@@ -160,56 +162,88 @@ public class ShowHistory {
         primaryStage.centerOnScreen();
         primaryStage.setScene(historyScene);
         primaryStage.show();
-        showLoadingPopup2();
     }
 
     private void fetchAndPopulateData(TableView<DroneApp.Drone> table,int limit ,int offset, String manufacturerFilter,String droneTypeFilter) {
-        if (currentFetchTask != null && !currentFetchTask.isDone()) {
-            currentFetchTask.cancel(true);
-        }
-
-        currentFetchTask = CompletableFuture.runAsync(() -> {
-            String endpoint = "/api/drone/";
-            String domain = "http://dronesim.facets-labs.com";
-            String token = "Token 40a9557fac747f55c11ad20c85caac1d43654911";
-            String agent = "Louay";
-
-            api myApi = new api(endpoint, domain, token, agent);
-
-            try {
-                myApi.createConnection("/api/drones/?limit=" + limit + "&offset=" + offset);
-                String response = myApi.retrieveResponse();
-
-                JSONArray drones = new JSONObject(response).getJSONArray("results");
-                ObservableList<DroneApp.Drone> dronesList = table.getItems();
-                dronesList.clear();
-
-                for (int i = 0; i < drones.length(); i++) {
-                    JSONObject drone = drones.getJSONObject(i);
-                    String dronetypeUrl = drone.getString("dronetype");
-                    String dronetypeName = DroneApp.NameDrone(dronetypeUrl);
-                    String dronemanufacturer = DroneApp.manufacturerDrone(dronetypeUrl);
-
-                    if (manufacturerFilter == null || dronemanufacturer.equalsIgnoreCase(manufacturerFilter) ||
-                            (dronemanufacturer.startsWith(manufacturerFilter) &&
-                            dronetypeName.startsWith(droneTypeFilter)) ||
-                            (droneTypeFilter == null || dronetypeName.equalsIgnoreCase(droneTypeFilter))) {
-                        dronesList.add(new DroneApp.Drone(
-                                drone.getInt("id"),
-                                dronetypeName,
-                                dronemanufacturer,
-                                drone.getString("created"),
-                                drone.getString("serialnumber"),
-                                drone.getInt("carriage_weight"),
-                                drone.getString("carriage_type")));
-                    }
+        // Aborts the request and row mapping of the page still loading, if any
+        FetchEpoch.Token fetch = fetches.next();
+        // The popup follows the real fetch and closes as soon as the page is shown
+        FetchProgress progress = new FetchProgress();
+        progress.expectRows(limit);
+        showProgressPopup("Loading drones", progress, fetches::cancel);
+
+        pages.get(pageKey(limit, offset), fetch, () -> loadPage(limit, offset, fetch, progress, RequestGovernor.Priority.INTERACTIVE)).thenAccept(page -> {
+            List<DroneApp.Drone> dronesList = new ArrayList<>();
+
+            for (DroneApp.Drone drone : page) {
+                String dronetypeName = drone.dronetype();
+                String dronemanufacturer = drone.manufacturer();
+
+                if (manufacturerFilter == null || dronemanufacturer.equalsIgnoreCase(manufacturerFilter) ||
+                        (dronemanufacturer.startsWith(manufacturerFilter) &&
+                        dronetypeName.startsWith(droneTypeFilter)) ||
+                        (droneTypeFilter == null || dronetypeName.equalsIgnoreCase(droneTypeFilter))) {
+                    dronesList.add(drone);
                 }
-            } catch (IOException ex) {
-                ErrorHandler.handleException(ex);
             }
+            // The table only ever receives a finished, immutable page
+            List<DroneApp.Drone> snapshot = List.copyOf(dronesList);
+            Platform.runLater(() -> {
+                // The epoch only moves on the FX thread, so this check cannot race a newer load
+                if (fetch.isCurrent()) {
+                    table.getItems().setAll(snapshot);
+                    if (manufacturerFilter == null && droneTypeFilter == null) {
+                        prefetchAround(limit, offset);
+                    }
+                }
+            });
+        }).whenComplete((result, error) -> progress.finish()).exceptionally(ex -> {
+            ErrorHandler.handleAsyncException(ex);
+            return null;
         });
     }
 
+    /**
+     * Fetches one page of drones and resolves the drone type of every row. The progress may be
+     * null, as for prefetches, which load with background priority.
+     */
+    private CompletableFuture<List<DroneApp.Drone>> loadPage(int limit, int offset, FetchEpoch.Token fetch, FetchProgress progress, RequestGovernor.Priority priority) {
+        String endpoint = "/api/drone/";
+        String domain = api.getBaseUrl();
+        String token = "Token 40a9557fac747f55c11ad20c85caac1d43654911";
+        String agent = "Louay";
+
+        api myApi = new api(endpoint, domain, token, agent);
+        myApi.setPriority(priority);
+
+        // Each drone is decoded and its type resolved while the page streams in
+        return myApi.getPageAsync("/api/drones/?limit=" + limit + "&offset=" + offset, drone -> {
+            String dronetypeUrl = drone.getString("dronetype");
+            DroneApp.Drone row = DroneApp.Drone.fromJson(drone, DroneApp.NameDrone(dronetypeUrl, priority), DroneApp.manufacturerDrone(dronetypeUrl, priority));
+            if (progress != null) {
+                progress.rowDone();
+            }
+            return row;
+        }, fetch, progress).thenApply(PageParser.Page::getResults);
+    }
+
+    /**
+     * Loads the next and the previous page in the background, so Next and Previous can be
+     * served from the page cache.
+     */
+    private void prefetchAround(int limit, int offset) {
+        if (offset + LIMIT <= MAX_OFFSET) {
+            pages.prefetch(pageKey(limit, offset + LIMIT), () -> loadPage(limit, offset + LIMIT, FetchEpoch.Token.NONE, null, RequestGovernor.Priority.BACKGROUND));
+        }
+        if (offset - LIMIT >= 0) {
+            pages.prefetch(pageKey(limit, offset - LIMIT), () -> loadPage(limit, offset - LIMIT, FetchEpoch.Token.NONE, null, RequestGovernor.Priority.BACKGROUND));
+        }
+    }
+
+    private static String pageKey(int limit, int offset) {
+        return limit + "@" + offset;
+    }
+
     private void fetchAndPopulateData(TableView<DroneApp.Drone> table,int limit ,int offset) {
         fetchAndPopulateData(table, 10,offset, null,null);
     }
@@ -249,7 +283,8 @@ public class ShowHistory {
 
         Button btnRefresh = createToolbarButton("Refresh", "/image/refresh.png");
         btnRefresh.setOnAction(e -> {
-            showLoadingPopup();
+            // Refresh means fresh data, not the cached pages
+            pages.clear();
             try {
                 showHistoryPage(primaryStage);
             } catch (IOException er) {
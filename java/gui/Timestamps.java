@@ -0,0 +1,40 @@
+package gui;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * The Timestamps class renders the epoch microseconds of a record for display.
+ * <p>
+ * The records call it once, when they are built, and keep the rendered string, so TableView and
+ * the detail labels can ask for the same timestamp on every render without formatting again.
+ * Parsing the ISO timestamps of the API is left to TelemetrySample.parseIso.
+ */
+public class Timestamps {
+    public static final Format CREATED = new Format("yyyy-MMMM-dd HH:mm:ss");
+    public static final Format TIMESTAMP = new Format("yyyy-MMMM-dd    HH : mm : ss . SSSSSS");
+    public static final Format LAST_SEEN = new Format("yyyy-MMMM-dd     HH : mm : ss . SSSSSS");
+
+    /**
+     * A display format. DateTimeFormatter is immutable, so it is shared by every thread
+     * without locking.
+     */
+    public static class Format {
+        private final DateTimeFormatter formatter;
+
+        Format(String pattern) {
+            this.formatter = DateTimeFormatter.ofPattern(pattern);
+        }
+
+        /**
+         * Renders the wall-clock time of the instant in the given UTC offset.
+         */
+        public String format(long epochMicros, int offsetSeconds) {
+            Instant instant = Instant.EPOCH.plus(epochMicros, ChronoUnit.MICROS);
+            return LocalDateTime.ofInstant(instant, ZoneOffset.ofTotalSeconds(offsetSeconds)).format(formatter);
+        }
+    }
+}